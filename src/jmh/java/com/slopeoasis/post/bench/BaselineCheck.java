@@ -0,0 +1,73 @@
+package com.slopeoasis.post.bench;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares a JMH JSON result with the committed baseline and reports every benchmark that
+ * got slower than baseline * (1 + tolerance). All benchmarks report average time, so lower is better.
+ * With failOnRegression it exits with 1 on a regression; on a shared or noisy machine run-to-run
+ * variance exceeds the tolerance, so the default only reports.
+ * Usage: BaselineCheck baseline.json result.json [tolerance] [failOnRegression]
+ */
+public final class BaselineCheck {
+
+    private BaselineCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        File baselineFile = new File(args[0]);
+        File resultFile = new File(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+        boolean failOnRegression = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (!resultFile.exists()) {
+            System.err.println("[BaselineCheck] No result file " + resultFile);
+            System.exit(1);
+        }
+        Map<String, JsonNode> result = scores(resultFile);
+        if (!baselineFile.exists()) {
+            System.out.println("[BaselineCheck] No baseline yet, copy " + resultFile + " to " + baselineFile);
+            return;
+        }
+        Map<String, JsonNode> baseline = scores(baselineFile);
+
+        int regressions = 0;
+        System.out.printf("%-70s %12s %12s %8s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, JsonNode> e : result.entrySet()) {
+            JsonNode base = baseline.get(e.getKey());
+            double current = e.getValue().path("score").asDouble();
+            String unit = e.getValue().path("scoreUnit").asText();
+            if (base == null) {
+                System.out.printf("%-70s %12s %12.3f %8s  (new, %s)%n", e.getKey(), "-", current, "", unit);
+                continue;
+            }
+            double before = base.path("score").asDouble();
+            double change = (current - before) / before;
+            boolean regressed = change > tolerance;
+            if (regressed) regressions++;
+            System.out.printf("%-70s %12.3f %12.3f %+7.1f%% %s%s%n", e.getKey(), before, current, change * 100,
+                    unit, regressed ? "  REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.err.printf("[BaselineCheck] %d benchmark(s) slower than baseline by more than %.0f%%%n",
+                    regressions, tolerance * 100);
+            if (failOnRegression) System.exit(1);
+        }
+    }
+
+    // benchmark + parametri -> primaryMetric
+    private static Map<String, JsonNode> scores(File file) throws Exception {
+        Map<String, JsonNode> out = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText()
+                    .replace("com.slopeoasis.post.", ""));
+            run.path("params").fields().forEachRemaining(p -> key.append(' ').append(p.getKey()).append('=').append(p.getValue().asText()));
+            out.put(key.toString(), run.path("primaryMetric"));
+        }
+        return out;
+    }
+}
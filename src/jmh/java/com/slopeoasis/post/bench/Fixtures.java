@@ -0,0 +1,117 @@
+package com.slopeoasis.post.bench;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.slopeoasis.post.entity.Posts;
+import com.slopeoasis.post.entity.Posts.Status;
+import com.slopeoasis.post.entity.Posts.Tag;
+
+/**
+ * Deterministic test data for the benchmarks: every generator takes a seed, so each run
+ * (and each fork) measures exactly the same inputs.
+ */
+public final class Fixtures {
+
+    public static final long SEED = 42L;
+    public static final LocalDateTime EPOCH = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private Fixtures() {}
+
+    // post z vsemi tagi in previews predogledi (kupci so v post_buyers in se ne serializirajo)
+    public static Posts post(int id, int previews, long seed) {
+        Random rnd = new Random(seed + id);
+        Posts p = new Posts();
+        p.setId(id);
+        p.setTitle("Benchmark post " + id);
+        p.setSellerId("user_" + Long.toHexString(rnd.nextLong()));
+        p.setDescription("Description ".repeat(20));
+        p.setTags(EnumSet.allOf(Tag.class));
+        p.setAzBlobName(uuid(rnd) + ".zip");
+        List<String> images = new ArrayList<>(previews);
+        for (int i = 0; i < previews; i++) images.add(uuid(rnd) + ".png");
+        p.setPreviewImages(images);
+        p.setBuyers(new HashSet<>());
+        p.setCopies(-1);
+        p.setPriceUSD(9.99);
+        p.setFileVersion(1);
+        p.setUploadTime(EPOCH.plusSeconds(id));
+        p.setLastTimeModified(EPOCH.plusSeconds(id));
+        p.setStatus(Status.ACTIVE);
+        return p;
+    }
+
+    // count različnih tagov, izbranih s seedom (teme uporabnika za feed)
+    public static Set<Tag> tags(int count, long seed) {
+        List<Tag> all = new ArrayList<>(List.of(Tag.values()));
+        java.util.Collections.shuffle(all, new Random(seed));
+        Set<Tag> tags = EnumSet.noneOf(Tag.class);
+        tags.addAll(all.subList(0, Math.min(count, all.size())));
+        return tags;
+    }
+
+    // RSA par, generiran iz fiksnega seeda (SHA1PRNG je deterministicen, če ga seedamo pred prvo uporabo)
+    public static KeyPair rsaKeyPair(long seed) {
+        try {
+            SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+            random.setSeed(seed);
+            KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
+            gen.initialize(2048, random);
+            return gen.generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String jwks(String kid, KeyPair pair) {
+        RSAPublicKey pub = (RSAPublicKey) pair.getPublic();
+        return "{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"" + kid + "\",\"alg\":\"RS256\",\"use\":\"sig\""
+                + ",\"n\":\"" + b64(unsigned(pub.getModulus().toByteArray())) + "\""
+                + ",\"e\":\"" + b64(unsigned(pub.getPublicExponent().toByteArray())) + "\"}]}";
+    }
+
+    // RS256 JWT s Clerk claimi (iss, usid, wallet)
+    public static String jwt(String kid, KeyPair pair, String issuer, String usid) {
+        try {
+            String header = b64(("{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"" + kid + "\"}").getBytes(StandardCharsets.UTF_8));
+            String payload = b64(("{\"iss\":\"" + issuer + "\",\"sub\":\"" + usid + "\",\"usid\":\"" + usid
+                    + "\",\"wallet\":\"0x0000000000000000000000000000000000000042\",\"iat\":1735689600,\"exp\":4102444800}")
+                    .getBytes(StandardCharsets.UTF_8));
+            Signature signer = Signature.getInstance("SHA256withRSA");
+            signer.initSign(pair.getPrivate());
+            signer.update((header + "." + payload).getBytes(StandardCharsets.US_ASCII));
+            return header + "." + payload + "." + b64(signer.sign());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String uuid(Random rnd) {
+        return new java.util.UUID(rnd.nextLong(), rnd.nextLong()).toString();
+    }
+
+    private static String b64(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static byte[] unsigned(byte[] bytes) {
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+}
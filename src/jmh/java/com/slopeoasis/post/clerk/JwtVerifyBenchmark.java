@@ -0,0 +1,75 @@
+package com.slopeoasis.post.clerk;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.slopeoasis.post.bench.Fixtures;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * ClerkJwtVerifier.verify on the hot path: real RS256 token, key already in JwksKeyStore.
+ * The JWKS is served by a local stub, so the measurement excludes the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtVerifyBenchmark {
+
+    private static final String ISSUER = "https://clerk.bench.local";
+    private static final String KID = "ins_bench";
+
+    private HttpServer jwksServer;
+    private JwksKeyStore keyStore;
+    private ClerkJwtVerifier verifier;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPair pair = Fixtures.rsaKeyPair(Fixtures.SEED);
+        byte[] jwks = Fixtures.jwks(KID, pair).getBytes(StandardCharsets.UTF_8);
+        jwksServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        jwksServer.createContext("/jwks", exchange -> {
+            exchange.sendResponseHeaders(200, jwks.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(jwks);
+            }
+        });
+        jwksServer.start();
+
+        String jwksUrl = "http://127.0.0.1:" + jwksServer.getAddress().getPort() + "/jwks";
+        keyStore = new JwksKeyStore(jwksUrl, Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(10), Duration.ofSeconds(5));
+        verifier = new ClerkJwtVerifier(keyStore, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(verifier, "issuer", ISSUER);
+        ReflectionTestUtils.setField(verifier, "jwksUrl", jwksUrl);
+        ReflectionTestUtils.setField(verifier, "devMode", false);
+
+        token = Fixtures.jwt(KID, pair, ISSUER, "user_bench");
+        verifier.verify(token); // naloži ključ
+    }
+
+    @TearDown
+    public void tearDown() {
+        jwksServer.stop(0);
+    }
+
+    @Benchmark
+    public ClerkTokenPayload verify() throws Exception {
+        return verifier.verify(token);
+    }
+}
@@ -0,0 +1,48 @@
+package com.slopeoasis.post.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.slopeoasis.post.entity.Posts.Tag;
+
+/**
+ * PostsCont.parseTags for a typical create request (all tags valid) and a rejected one
+ * (last tag invalid, so the exception path is included).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParseTagsBenchmark {
+
+    private List<String> valid;
+    private List<String> invalid;
+
+    @Setup
+    public void setup() {
+        valid = new ArrayList<>();
+        for (Tag t : Tag.values()) valid.add(t.name());
+        invalid = new ArrayList<>(valid);
+        invalid.add("NOT_A_TAG");
+    }
+
+    @Benchmark
+    public Optional<Set<Tag>> validTags() {
+        return PostsCont.parseTags(valid);
+    }
+
+    @Benchmark
+    public Optional<Set<Tag>> invalidTag() {
+        return PostsCont.parseTags(invalid);
+    }
+}
@@ -0,0 +1,50 @@
+package com.slopeoasis.post.controller;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.slopeoasis.post.bench.Fixtures;
+import com.slopeoasis.post.controller.PostsCont.PostWithRating;
+import com.slopeoasis.post.service.PostsServ.RatingSummary;
+
+/**
+ * JSON serialization of the GET /posts/{id} response with a growing preview collection.
+ * Buyers are not serialized (only buyerCount), so their number doesn't change the response.
+ * The ObjectMapper is configured like Spring Boot's default one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostWithRatingBenchmark {
+
+    @Param({"5", "100"})
+    public int previews;
+
+    private ObjectMapper mapper;
+    private PostWithRating response;
+
+    @Setup
+    public void setup() {
+        mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        RatingSummary rating = new RatingSummary(4.2, 1234, new long[] {12, 40, 150, 400, 632});
+        response = new PostWithRating(Fixtures.post(1, previews, Fixtures.SEED), rating, 10_000, Boolean.TRUE);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return mapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,55 @@
+package com.slopeoasis.post.service;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.slopeoasis.post.bench.Fixtures;
+import com.slopeoasis.post.entity.Posts.Tag;
+
+/**
+ * The JVM side of the tag_mask feed: FeedServ turns the user's themes into TagFilter.anyOf(...).matchingMasks()
+ * for every /posts/themes page it loads, /posts/tags parses any/none first. Both evaluate the filter over
+ * every possible mask (2^Tag count) before the single tag_mask = ANY(:masks) query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TagFilterBenchmark {
+
+    @Param({"1", "3", "9"})
+    public int themes;
+
+    private Set<Tag> userThemes;
+    private String anyParam;
+    private String noneParam;
+
+    @Setup
+    public void setup() {
+        userThemes = Fixtures.tags(themes, Fixtures.SEED);
+        anyParam = userThemes.stream().map(Tag::name).collect(Collectors.joining(","));
+        // izključi prvi tag, ki ga uporabnik nima (pri vseh temah ni takega)
+        noneParam = Arrays.stream(Tag.values()).filter(t -> !userThemes.contains(t)).findFirst()
+                .map(Tag::name).orElse(null);
+    }
+
+    @Benchmark
+    public Integer[] feedMasks() {
+        return TagFilter.anyOf(userThemes).matchingMasks();
+    }
+
+    @Benchmark
+    public Integer[] parsedFilterMasks() {
+        return TagFilter.parse(anyParam, null, noneParam).get().matchingMasks();
+    }
+}
@@ -1,24 +1,22 @@
 package com.slopeoasis.post.clerk;
 
-import java.security.KeyFactory;
-import java.security.PublicKey;
-import java.security.Signature;
-import java.security.spec.RSAPublicKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slopeoasis.post.clerk.JwksKeyStore.VerificationKey;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * Clerk JWT verifier using the official Clerk backend SDK.
  * Validates JWT tokens issued by Clerk by:
- * 1. Fetching JWKS (public keys) from Clerk's JWKS endpoint
+ * 1. Looking up the public key by kid in JwksKeyStore (cached JWKS, refreshed in the background)
  * 2. Verifying token signature using the appropriate public key
  * 3. Extracting custom claims (usid, wallet) from the verified token
  */
@@ -33,15 +31,39 @@ public class ClerkJwtVerifier {
     @Value("${jwt.dev-mode:false}")
     private boolean devMode;
 
-    private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final Map<String, PublicKey> publicKeyCache = new HashMap<>();
+    private final JwksKeyStore keyStore;
+    private final MeterRegistry meterRegistry;
+
+    public ClerkJwtVerifier(JwksKeyStore keyStore, MeterRegistry meterRegistry) {
+        this.keyStore = keyStore;
+        this.meterRegistry = meterRegistry;
+    }
 
     /**
      * Verify a Clerk JWT token and extract claims.
      * Returns a ClerkTokenPayload with usid (user ID) and wallet.
+     * Timed as jwt.verify{outcome=valid|invalid|error}.
      */
     public ClerkTokenPayload verify(String token) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ClerkTokenPayload payload = verifyToken(token);
+            outcome = "valid";
+            return payload;
+        } catch (IllegalArgumentException e) {
+            outcome = "invalid";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("jwt.verify")
+                    .description("Clerk JWT verification")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private ClerkTokenPayload verifyToken(String token) throws Exception {
         if (devMode) {
             // Dev mode: extract claims without signature verification
             return extractClaimsWithoutVerification(token);
@@ -78,7 +100,7 @@ public class ClerkJwtVerifier {
         }
 
         // Get public key from JWKS
-        PublicKey publicKey = getPublicKeyFromJwks(kid);
+        VerificationKey publicKey = keyStore.getKey(kid);
         if (publicKey == null) {
             throw new IllegalArgumentException("Unable to find public key with kid: " + kid);
         }
@@ -86,12 +108,8 @@ public class ClerkJwtVerifier {
         // Verify signature
         String signedContent = parts[0] + "." + parts[1];
         byte[] signatureBytes = Base64.getUrlDecoder().decode(signatureStr);
-    
-        Signature sig = Signature.getInstance("SHA256withRSA");
-        sig.initVerify(publicKey);
-        sig.update(signedContent.getBytes());
-    
-        if (!sig.verify(signatureBytes)) {
+
+        if (!publicKey.verify(signedContent.getBytes(StandardCharsets.US_ASCII), signatureBytes)) {
             throw new IllegalArgumentException("Invalid token signature");
         }
 
@@ -106,61 +124,6 @@ public class ClerkJwtVerifier {
         return new ClerkTokenPayload(usid, wallet);
     }
 
-    /**
-     * Fetch JWKS from Clerk and extract the public key matching the token's kid (key ID).
-     */
-    private PublicKey getPublicKeyFromJwks(String kid) throws Exception {
-        // Check cache first
-        if (publicKeyCache.containsKey(kid)) {
-            return publicKeyCache.get(kid);
-        }
-
-        // Fetch JWKS from Clerk
-        String jwksJson = restTemplate.getForObject(jwksUrl, String.class);
-        JsonNode jwksNode = objectMapper.readTree(jwksJson);
-        JsonNode keysArray = jwksNode.path("keys");
-
-        for (JsonNode keyNode : keysArray) {
-            if (kid.equals(keyNode.path("kid").asText())) {
-                PublicKey key = extractPublicKeyFromJwk(keyNode);
-                publicKeyCache.put(kid, key);
-                return key;
-            }
-        }
-
-        return null;
-    }
-
-    /**
-     * Extract a PublicKey from a JWK (JSON Web Key) node.
-     */
-    private PublicKey extractPublicKeyFromJwk(JsonNode jwk) throws Exception {
-        String kty = jwk.path("kty").asText();
-        if (!"RSA".equals(kty)) {
-            throw new IllegalArgumentException("Unsupported key type: " + kty);
-        }
-
-        // Extract RSA components (n and e)
-        String n = jwk.path("n").asText();
-        String e = jwk.path("e").asText();
-
-        if (n.isBlank() || e.isBlank()) {
-            throw new IllegalArgumentException("Missing RSA key components in JWK");
-        }
-
-        // Decode n and e from Base64url
-        byte[] nBytes = Base64.getUrlDecoder().decode(n);
-        byte[] eBytes = Base64.getUrlDecoder().decode(e);
-
-        // Convert to BigInteger and create RSA key spec
-        java.math.BigInteger modulus = new java.math.BigInteger(1, nBytes);
-        java.math.BigInteger exponent = new java.math.BigInteger(1, eBytes);
-
-        RSAPublicKeySpec spec = new RSAPublicKeySpec(modulus, exponent);
-        KeyFactory kf = KeyFactory.getInstance("RSA");
-        return kf.generatePublic(spec);
-    }
-
     /**
      * Dev mode: extract claims without signature verification.
      */
@@ -0,0 +1,277 @@
+package com.slopeoasis.post.clerk;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Thread-safe cache of Clerk's JWKS public keys.
+ * - only one JWKS fetch runs at a time; concurrent callers with an unknown kid wait for it (single-flight)
+ * - keys are refreshed in the background every jwt.jwks.refresh-interval, so rotation rarely hits the request path
+ * - unknown kids are remembered for jwt.jwks.negative-ttl and on-demand fetches are rate limited by
+ *   jwt.jwks.min-refresh-interval, so tokens with bogus kids can't hammer the JWKS endpoint; a kid is only
+ *   remembered as unknown after a fetch that started after the miss, so a key rotated in while fetches are
+ *   rate limited is found on the next allowed fetch
+ * - each key keeps a small pool of initialized Signature objects
+ */
+@Component
+public class JwksKeyStore {
+
+    private static final int MAX_UNKNOWN_KIDS = 10_000;
+
+    private final String jwksUrl;
+    private final long refreshIntervalMillis;
+    private final long negativeTtlNanos;
+    private final long minRefreshNanos;
+    private final long fetchTimeoutMillis;
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, VerificationKey> keys = new ConcurrentHashMap<>();
+    private final Map<String, Long> unknownKids = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<Void>> inflight = new AtomicReference<>();
+    private volatile long lastAttemptNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+    // začetek zadnjega uspešnega branja JWKS
+    private volatile long lastLoadStartNanos = lastAttemptNanos;
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder fetches = new LongAdder();
+    private final LongAdder fetchFailures = new LongAdder();
+
+    public JwksKeyStore(@Value("${jwt.jwks-url:}") String jwksUrl,
+                        @Value("${jwt.jwks.refresh-interval:10m}") Duration refreshInterval,
+                        @Value("${jwt.jwks.negative-ttl:5m}") Duration negativeTtl,
+                        @Value("${jwt.jwks.min-refresh-interval:10s}") Duration minRefreshInterval,
+                        @Value("${jwt.jwks.fetch-timeout:5s}") Duration fetchTimeout) {
+        this.jwksUrl = jwksUrl;
+        this.refreshIntervalMillis = refreshInterval.toMillis();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.minRefreshNanos = minRefreshInterval.toNanos();
+        this.fetchTimeoutMillis = fetchTimeout.toMillis();
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) fetchTimeoutMillis);
+        requestFactory.setReadTimeout((int) fetchTimeoutMillis);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    //ob zagonu naloži ključe in začne periodično osveževanje (samo če je JWKS URL nastavljen)
+    @PostConstruct
+    public void start() {
+        if (jwksUrl == null || jwksUrl.isBlank() || scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jwks-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1, refreshIntervalMillis);
+        scheduler.scheduleWithFixedDelay(this::backgroundRefresh, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    /**
+     * Key for the given kid, fetching the JWKS (at most one fetch at a time) if it isn't known yet.
+     * @return null when the JWKS doesn't contain the kid
+     * @throws IllegalStateException when the JWKS endpoint can't be reached
+     */
+    public VerificationKey getKey(String kid) {
+        VerificationKey key = keys.get(kid);
+        if (key != null) {
+            hits.increment();
+            return key;
+        }
+        Long until = unknownKids.get(kid);
+        if (until != null) {
+            if (until - System.nanoTime() > 0) {
+                negativeHits.increment();
+                return null;
+            }
+            unknownKids.remove(kid, until);
+        }
+        misses.increment();
+        long missedAt = System.nanoTime();
+
+        CompletableFuture<Void> fetch = inflight.get();
+        if (fetch == null && System.nanoTime() - lastAttemptNanos >= minRefreshNanos) {
+            fetch = refresh();
+        }
+        if (fetch != null) await(fetch);
+
+        key = keys.get(kid);
+        // brez svežega branja (omejitev ali branje, ki se je začelo pred zgrešitvijo) ne vemo, da kid ne obstaja
+        if (key == null && lastLoadStartNanos - missedAt >= 0) rememberUnknown(kid);
+        return key;
+    }
+
+    /**
+     * Fetch the JWKS now, or join the fetch that is already running.
+     */
+    public CompletableFuture<Void> refresh() {
+        while (true) {
+            CompletableFuture<Void> running = inflight.get();
+            if (running != null) return running;
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            if (!inflight.compareAndSet(null, mine)) continue;
+            try {
+                load();
+                inflight.set(null);
+                mine.complete(null);
+            } catch (Exception e) {
+                fetchFailures.increment();
+                inflight.set(null);
+                mine.completeExceptionally(e);
+            }
+            return mine;
+        }
+    }
+
+    private void backgroundRefresh() {
+        try {
+            refresh().join();
+        } catch (Exception e) {
+            System.err.println("[JwksKeyStore] Background JWKS refresh failed: " + e.getMessage());
+        }
+    }
+
+    private void await(CompletableFuture<Void> fetch) {
+        try {
+            fetch.get(fetchTimeoutMillis * 2, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to fetch JWKS: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for JWKS", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for JWKS", e);
+        }
+    }
+
+    private void load() throws Exception {
+        long startedAt = System.nanoTime();
+        lastAttemptNanos = startedAt;
+        fetches.increment();
+        String jwksJson = restTemplate.getForObject(jwksUrl, String.class);
+        JsonNode keysArray = objectMapper.readTree(jwksJson).path("keys");
+
+        KeyFactory kf = KeyFactory.getInstance("RSA");
+        Map<String, VerificationKey> loaded = new HashMap<>();
+        for (JsonNode keyNode : keysArray) {
+            String kid = keyNode.path("kid").asText(null);
+            if (kid == null || !"RSA".equals(keyNode.path("kty").asText())) continue;
+            VerificationKey existing = keys.get(kid);
+            // nespremenjen ključ obdržimo skupaj z že inicializiranimi Signature objekti
+            loaded.put(kid, existing != null && existing.jwk.equals(keyNode) ? existing
+                    : new VerificationKey(kid, keyNode, toPublicKey(kf, keyNode)));
+        }
+        if (loaded.isEmpty()) {
+            throw new IllegalStateException("JWKS contains no RSA keys");
+        }
+
+        keys.putAll(loaded);
+        keys.keySet().retainAll(loaded.keySet());
+        unknownKids.keySet().removeAll(loaded.keySet());
+        lastLoadStartNanos = startedAt;
+    }
+
+    private void rememberUnknown(String kid) {
+        if (unknownKids.size() >= MAX_UNKNOWN_KIDS) unknownKids.clear();
+        unknownKids.put(kid, System.nanoTime() + negativeTtlNanos);
+    }
+
+    private static PublicKey toPublicKey(KeyFactory kf, JsonNode jwk) throws GeneralSecurityException {
+        String n = jwk.path("n").asText();
+        String e = jwk.path("e").asText();
+        if (n.isBlank() || e.isBlank()) {
+            throw new IllegalArgumentException("Missing RSA key components in JWK");
+        }
+        BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(n));
+        BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(e));
+        return kf.generatePublic(new RSAPublicKeySpec(modulus, exponent));
+    }
+
+    public long getHitCount() { return hits.sum(); }
+
+    public long getMissCount() { return misses.sum(); }
+
+    public long getNegativeHitCount() { return negativeHits.sum(); }
+
+    public long getFetchCount() { return fetches.sum(); }
+
+    public long getFetchFailureCount() { return fetchFailures.sum(); }
+
+    public int size() { return keys.size(); }
+
+    /**
+     * RSA public key from the JWKS with a pool of Signature objects already initialized for it,
+     * so verification doesn't pay for Signature.getInstance + initVerify on every token.
+     */
+    public static final class VerificationKey {
+        private static final String ALGORITHM = "SHA256withRSA";
+
+        private final String kid;
+        private final JsonNode jwk;
+        private final PublicKey publicKey;
+        private final Queue<Signature> pool = new ConcurrentLinkedQueue<>();
+
+        VerificationKey(String kid, JsonNode jwk, PublicKey publicKey) {
+            this.kid = kid;
+            this.jwk = jwk;
+            this.publicKey = publicKey;
+        }
+
+        public boolean verify(byte[] content, byte[] signature) throws GeneralSecurityException {
+            Signature sig = pool.poll();
+            if (sig == null) {
+                sig = Signature.getInstance(ALGORITHM);
+                sig.initVerify(publicKey);
+            }
+            // verify() ponastavi objekt na stanje po initVerify, zato ga lahko vrnemo v pool;
+            // ob izjemi stanje ni znano in ga zavržemo
+            sig.update(content);
+            boolean valid = sig.verify(signature);
+            pool.offer(sig);
+            return valid;
+        }
+
+        public String getKid() { return kid; }
+
+        public PublicKey getPublicKey() { return publicKey; }
+    }
+}
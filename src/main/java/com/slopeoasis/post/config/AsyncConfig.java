@@ -0,0 +1,42 @@
+package com.slopeoasis.post.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    // Omejen pool za vzporedne uploade v Azure (glavna datoteka + preview slike).
+    // Ko je vrsta polna, upload izvede kar klicoča nit, da ostane poraba omejena.
+    @Bean(name = "blobUploadExecutor")
+    public ThreadPoolTaskExecutor blobUploadExecutor(
+            @Value("${blob.upload.threads:8}") int threads,
+            @Value("${blob.upload.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("blob-upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    // Sprostitve referenc blobov po commitu (BlobUploadPipeline.discardAfterCommit): tečejo izven zahtevka, ko je
+    // njegova povezava že vrnjena v pool. Vrsta ni omejena (samo imena blobov), izgubljena sprostitev bi pustila osirotel blob.
+    @Bean(name = "blobReleaseExecutor")
+    public ThreadPoolTaskExecutor blobReleaseExecutor(@Value("${blob.release.threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("blob-release-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,71 @@
+package com.slopeoasis.post.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.slopeoasis.post.service.Bulkhead;
+import com.slopeoasis.post.service.CircuitBreaker;
+
+/**
+ * Per-downstream concurrency limits (see Bulkhead). With virtual threads the Tomcat thread count no longer
+ * caps how many requests reach a dependency at once, so each one gets its own limit: blob storage calls
+ * (AzureBlobServ), proxied downloads that hold a permit for the whole transfer (AzureBlobServ.openRange),
+ * user-service calls (UserServiceClient) and borrowed DB connections (BulkheadDataSource).
+ * The user-service circuit breaker lives here too, so its metrics don't depend on the client.
+ */
+@Configuration
+public class BulkheadConfig {
+
+    @Bean
+    public Bulkhead blobBulkhead(@Value("${bulkhead.blob.max-concurrent:64}") int maxConcurrent,
+                                 @Value("${bulkhead.blob.max-wait:0s}") Duration maxWait) {
+        return new Bulkhead("blob", maxConcurrent, maxWait);
+    }
+
+    @Bean
+    public Bulkhead downloadBulkhead(@Value("${bulkhead.download.max-concurrent:32}") int maxConcurrent,
+                                     @Value("${bulkhead.download.max-wait:0s}") Duration maxWait) {
+        return new Bulkhead("download", maxConcurrent, maxWait);
+    }
+
+    @Bean
+    public Bulkhead userServiceBulkhead(@Value("${bulkhead.user-service.max-concurrent:32}") int maxConcurrent,
+                                        @Value("${bulkhead.user-service.max-wait:0s}") Duration maxWait) {
+        return new Bulkhead("user-service", maxConcurrent, maxWait);
+    }
+
+    @Bean
+    public CircuitBreaker userServiceBreaker(@Value("${user.api.breaker.failure-threshold:5}") int failureThreshold,
+                                             @Value("${user.api.breaker.open-duration:30s}") Duration openDuration) {
+        return new CircuitBreaker("user-service", failureThreshold, openDuration);
+    }
+
+    @Bean
+    public Bulkhead dbBulkhead(@Value("${bulkhead.db.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+                               @Value("${bulkhead.db.max-wait:200ms}") Duration maxWait) {
+        return new Bulkhead("db", maxConcurrent, maxWait);
+    }
+
+    // static, da se post-processor registrira pred DataSource; bulkhead se poišče šele ob ovijanju
+    @Bean
+    public static BeanPostProcessor dbBulkheadPostProcessor(@Qualifier("dbBulkhead") ObjectProvider<Bulkhead> dbBulkhead) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)
+                        && "dataSource".equals(beanName)) {
+                    return new BulkheadDataSource(dataSource, dbBulkhead.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
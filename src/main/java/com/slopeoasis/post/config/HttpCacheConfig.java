@@ -0,0 +1,52 @@
+package com.slopeoasis.post.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.WebContentInterceptor;
+
+/**
+ * HTTP caching for list endpoints. A page's validator would need the same keyset query as the page itself,
+ * so lists get an ETag hashed from the response body (304 saves the transfer, not the queries) and a
+ * Cache-Control header. Single-post and rating reads set their own validators in PostsCont.
+ */
+@Configuration
+public class HttpCacheConfig implements WebMvcConfigurer {
+
+    private static final String[] PUBLIC_LISTS = { "/posts/seller/**", "/posts/tag/**", "/posts/tags", "/posts/search/**" };
+    private static final String[] PRIVATE_LISTS = { "/posts/buyer/**", "/posts/themes" };
+
+    private final Duration publicMaxAge;
+
+    public HttpCacheConfig(@Value("${http.cache.public-max-age:30s}") Duration publicMaxAge) {
+        this.publicMaxAge = publicMaxAge;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        WebContentInterceptor interceptor = new WebContentInterceptor();
+        // brez omejitve metod, sicer bi interceptor zavrnil CORS preflight (OPTIONS)
+        interceptor.setSupportedMethods((String[]) null);
+        interceptor.addCacheMapping(CacheControl.maxAge(publicMaxAge).cachePublic(), PUBLIC_LISTS);
+        interceptor.addCacheMapping(CacheControl.noCache().cachePrivate(), PRIVATE_LISTS);
+        registry.addInterceptor(interceptor)
+                .addPathPatterns(PUBLIC_LISTS)
+                .addPathPatterns(PRIVATE_LISTS);
+    }
+
+    // servlet url-patterni (brez **), ETag se izračuna samo za uspešne GET odgovore
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> listEtagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> bean = new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        bean.addUrlPatterns("/posts/seller/*", "/posts/tag/*", "/posts/tags", "/posts/search/*",
+                "/posts/buyer/*", "/posts/themes");
+        return bean;
+    }
+}
@@ -0,0 +1,147 @@
+package com.slopeoasis.post.config;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.slopeoasis.post.clerk.JwksKeyStore;
+import com.slopeoasis.post.service.BlobMetadataReconciler;
+import com.slopeoasis.post.service.BlobMetadataServ;
+import com.slopeoasis.post.service.Bulkhead;
+import com.slopeoasis.post.service.CircuitBreaker;
+import com.slopeoasis.post.service.PostCache;
+import com.slopeoasis.post.service.PreviewThumbnailBackfill;
+import com.slopeoasis.post.service.PreviewThumbnailServ;
+import com.slopeoasis.post.service.UserServiceClient;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Metrike, ki jih Spring Boot ne registrira sam. HTTP endpointi (http.server.requests),
+ * repository klici (spring.data.repository.invocations), Hikari pool (hikaricp.*) in
+ * blobUploadExecutor (executor.*) so avtomatski; histogrami so vklopljeni v application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // jwks.lookups{result=hit|miss|negative_hit}, jwks.fetches, jwks.fetch.failures, jwks.keys
+    @Bean
+    public MeterBinder jwksMetrics(JwksKeyStore keyStore) {
+        return registry -> {
+            FunctionCounter.builder("jwks.lookups", keyStore, JwksKeyStore::getHitCount)
+                    .description("JWKS key lookups").tag("result", "hit").register(registry);
+            FunctionCounter.builder("jwks.lookups", keyStore, JwksKeyStore::getMissCount)
+                    .description("JWKS key lookups").tag("result", "miss").register(registry);
+            FunctionCounter.builder("jwks.lookups", keyStore, JwksKeyStore::getNegativeHitCount)
+                    .description("JWKS key lookups").tag("result", "negative_hit").register(registry);
+            FunctionCounter.builder("jwks.fetches", keyStore, JwksKeyStore::getFetchCount)
+                    .description("JWKS endpoint fetches").register(registry);
+            FunctionCounter.builder("jwks.fetch.failures", keyStore, JwksKeyStore::getFetchFailureCount)
+                    .description("Failed JWKS endpoint fetches").register(registry);
+            Gauge.builder("jwks.keys", keyStore, JwksKeyStore::size)
+                    .description("Keys currently cached").register(registry);
+        };
+    }
+
+    // cache.gets{cache=posts,result=hit|miss}, cache.evictions, cache.size, post.cache.invalidations{source=local|remote}
+    @Bean
+    public MeterBinder postCacheMetrics(PostCache postCache) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, postCache.getCache(), "posts");
+            FunctionCounter.builder("post.cache.invalidations", postCache, PostCache::getLocalInvalidationCount)
+                    .description("Post cache invalidations").tag("source", "local").register(registry);
+            FunctionCounter.builder("post.cache.invalidations", postCache, PostCache::getRemoteInvalidationCount)
+                    .description("Post cache invalidations").tag("source", "remote").register(registry);
+            FunctionCounter.builder("post.cache.listener.reconnects", postCache, PostCache::getListenerReconnectCount)
+                    .description("LISTEN connection failures").register(registry);
+        };
+    }
+
+    // bulkhead.in_use{name=blob|download|user-service|db}, bulkhead.max, bulkhead.rejections
+    @Bean
+    public MeterBinder bulkheadMetrics(List<Bulkhead> bulkheads) {
+        return registry -> {
+            for (Bulkhead b : bulkheads) {
+                Gauge.builder("bulkhead.in_use", b, Bulkhead::getInUse)
+                        .description("Calls currently holding a bulkhead permit").tag("name", b.getName()).register(registry);
+                Gauge.builder("bulkhead.max", b, Bulkhead::getMaxConcurrent)
+                        .description("Bulkhead concurrency limit").tag("name", b.getName()).register(registry);
+                FunctionCounter.builder("bulkhead.rejections", b, Bulkhead::getRejectionCount)
+                        .description("Calls rejected because the bulkhead was full").tag("name", b.getName()).register(registry);
+            }
+        };
+    }
+
+    // user_service.themes{result=fresh|stale|fallback}, user_service.fetches, user_service.fetch.failures
+    @Bean
+    public MeterBinder userServiceMetrics(UserServiceClient client) {
+        return registry -> {
+            FunctionCounter.builder("user_service.themes", client, UserServiceClient::getFreshHitCount)
+                    .description("Theme lookups for the feed").tag("result", "fresh").register(registry);
+            FunctionCounter.builder("user_service.themes", client, UserServiceClient::getStaleHitCount)
+                    .description("Theme lookups for the feed").tag("result", "stale").register(registry);
+            FunctionCounter.builder("user_service.themes", client, UserServiceClient::getFallbackCount)
+                    .description("Theme lookups for the feed").tag("result", "fallback").register(registry);
+            FunctionCounter.builder("user_service.fetches", client, UserServiceClient::getFetchCount)
+                    .description("Calls to user-service /users/themes").register(registry);
+            FunctionCounter.builder("user_service.fetch.failures", client, UserServiceClient::getFetchFailureCount)
+                    .description("Failed calls to user-service /users/themes").register(registry);
+        };
+    }
+
+    // blob.metadata.lookups{result=cache|db|storage}, blob.metadata.backfilled, blob.metadata.missing,
+    // blob.dedup.hits, blob.dedup.bytes
+    @Bean
+    public MeterBinder blobMetadataMetrics(BlobMetadataServ metadataServ, BlobMetadataReconciler reconciler) {
+        return registry -> {
+            FunctionCounter.builder("blob.metadata.lookups", metadataServ, BlobMetadataServ::getCacheHitCount)
+                    .description("Blob metadata lookups").tag("result", "cache").register(registry);
+            FunctionCounter.builder("blob.metadata.lookups", metadataServ, BlobMetadataServ::getDbHitCount)
+                    .description("Blob metadata lookups").tag("result", "db").register(registry);
+            FunctionCounter.builder("blob.metadata.lookups", metadataServ, BlobMetadataServ::getStorageProbeCount)
+                    .description("Blob metadata lookups").tag("result", "storage").register(registry);
+            FunctionCounter.builder("blob.metadata.backfilled", reconciler, BlobMetadataReconciler::getBackfilledCount)
+                    .description("Blob metadata rows added by the reconciler").register(registry);
+            FunctionCounter.builder("blob.metadata.missing", reconciler, BlobMetadataReconciler::getMissingCount)
+                    .description("Post blobs the reconciler could not find in storage").register(registry);
+            FunctionCounter.builder("blob.dedup.hits", metadataServ, BlobMetadataServ::getDedupHitCount)
+                    .description("Uploads that reused an existing blob with the same content").register(registry);
+            FunctionCounter.builder("blob.dedup.bytes", metadataServ, BlobMetadataServ::getDedupBytes)
+                    .description("Bytes not stored twice thanks to upload deduplication").baseUnit("bytes").register(registry);
+        };
+    }
+
+    // preview.thumbnails.jobs{result=completed|retried|failed}, preview.thumbnails.backfilled
+    @Bean
+    public MeterBinder previewThumbnailMetrics(PreviewThumbnailServ thumbnails, PreviewThumbnailBackfill backfill) {
+        return registry -> {
+            FunctionCounter.builder("preview.thumbnails.jobs", thumbnails, PreviewThumbnailServ::getCompletedCount)
+                    .description("Preview thumbnail jobs").tag("result", "completed").register(registry);
+            FunctionCounter.builder("preview.thumbnails.jobs", thumbnails, PreviewThumbnailServ::getRetriedCount)
+                    .description("Preview thumbnail jobs").tag("result", "retried").register(registry);
+            FunctionCounter.builder("preview.thumbnails.jobs", thumbnails, PreviewThumbnailServ::getFailedCount)
+                    .description("Preview thumbnail jobs").tag("result", "failed").register(registry);
+            FunctionCounter.builder("preview.thumbnails.backfilled", backfill, PreviewThumbnailBackfill::getEnqueuedCount)
+                    .description("Preview jobs enqueued for previews stored before thumbnails existed").register(registry);
+        };
+    }
+
+    // circuit_breaker.state{name} (0 closed, 1 open, 2 half-open), circuit_breaker.opens, circuit_breaker.rejections
+    @Bean
+    public MeterBinder circuitBreakerMetrics(List<CircuitBreaker> breakers) {
+        return registry -> {
+            for (CircuitBreaker b : breakers) {
+                Gauge.builder("circuit_breaker.state", b, cb -> cb.getState().ordinal())
+                        .description("Circuit breaker state").tag("name", b.getName()).register(registry);
+                FunctionCounter.builder("circuit_breaker.opens", b, CircuitBreaker::getOpenCount)
+                        .description("Times the circuit breaker opened").tag("name", b.getName()).register(registry);
+                FunctionCounter.builder("circuit_breaker.rejections", b, CircuitBreaker::getRejectionCount)
+                        .description("Calls skipped while the circuit breaker was open").tag("name", b.getName()).register(registry);
+            }
+        };
+    }
+}
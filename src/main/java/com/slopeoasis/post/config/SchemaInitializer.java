@@ -0,0 +1,130 @@
+package com.slopeoasis.post.config;
+
+import java.util.StringJoiner;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.slopeoasis.post.entity.Posts.Tag;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Postgres-specific schema objects that Hibernate's ddl-auto=update can't express
+ * (extensions, expression/GIN/partial indexes, sequence increments, backfills). Runs after Hibernate
+ * has updated the schema and before the web server starts accepting requests. Every statement is idempotent,
+ * so both replicas can run it on startup.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SchemaInitializer {
+
+    // mora se ujemati z allocationSize v @SequenceGenerator
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile boolean trigramAvailable;
+    private volatile boolean fullTextAvailable;
+
+    public SchemaInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        //trigram indeks za iskanje po naslovu (LIKE '%q%' brez sekvenčnega skeniranja)
+        trigramAvailable = execute("CREATE EXTENSION IF NOT EXISTS pg_trgm")
+                && execute("CREATE INDEX IF NOT EXISTS idx_posts_title_trgm ON posts USING gin (lower(title) gin_trgm_ops)");
+
+        //full-text iskanje (PostSearchServ): naslov z utežjo A, opis z B; konfiguracija 'simple' (brez korenjenja),
+        //ker so objave v več jezikih, delne besede pokrije iskanje po predponi. Stolpec vzdržuje trigger in ne
+        //GENERATED ALWAYS, ker ddl-auto=update ob vsakem zagonu ponovi ALTER TYPE na description, Postgres pa ga
+        //zavrne za stolpce, od katerih je odvisen generiran stolpec (ali trigger z UPDATE OF seznamom stolpcev)
+        fullTextAvailable = execute("ALTER TABLE posts ADD COLUMN IF NOT EXISTS search_vector tsvector")
+                && execute("CREATE OR REPLACE FUNCTION posts_search_vector_update() RETURNS trigger AS $$ BEGIN " +
+                        "IF TG_OP = 'INSERT' OR NEW.title IS DISTINCT FROM OLD.title " +
+                        "OR NEW.description IS DISTINCT FROM OLD.description OR NEW.search_vector IS NULL THEN " +
+                        "NEW.search_vector := " + searchVector("NEW") + "; END IF; RETURN NEW; END $$ LANGUAGE plpgsql")
+                && execute("CREATE OR REPLACE TRIGGER posts_search_vector_trg BEFORE INSERT OR UPDATE ON posts " +
+                        "FOR EACH ROW EXECUTE FUNCTION posts_search_vector_update()")
+                && execute("UPDATE posts p SET search_vector = " + searchVector("p") + " WHERE p.search_vector IS NULL")
+                && execute("CREATE INDEX IF NOT EXISTS idx_posts_search_vector ON posts USING gin (search_vector) WHERE status = 'ACTIVE'");
+
+        //tag_mask za vrstice izpred uvedbe stolpca (in popravek, če bi se kdaj razšel s post_tags)
+        execute("UPDATE posts p SET tag_mask = m.mask FROM (SELECT post_id, bit_or(" + tagBitCase() + ") AS mask " +
+                "FROM post_tags GROUP BY post_id) m WHERE m.post_id = p.id AND p.tag_mask <> m.mask");
+        //buyer_count za vrstice izpred uvedbe stolpca (in popravek, če bi se kdaj razšel s post_buyers)
+        execute("UPDATE posts p SET buyer_count = b.n FROM (SELECT post_id, count(*) AS n FROM post_buyers GROUP BY post_id) b " +
+                "WHERE b.post_id = p.id AND p.buyer_count <> b.n");
+        //filtriranje po tagih (PostsRepo.TAG_FILTER): široki filtri berejo ACTIVE poste v vrstnem redu strani,
+        //ozki (malo ustreznih mask) gredo preko tag_mask
+        execute("CREATE INDEX IF NOT EXISTS idx_posts_active_feed ON posts (upload_time, id) WHERE status = 'ACTIVE'");
+        execute("CREATE INDEX IF NOT EXISTS idx_posts_active_tag_mask ON posts (tag_mask, upload_time, id) WHERE status = 'ACTIVE'");
+
+        //az_blob_name ni več unikaten (deduplikacija uploadov: posti istega prodajalca si lahko delijo blob);
+        //Hibernate ob ddl-auto=update starih unique omejitev ne odstrani, ime pa je generirano
+        execute("DO $$ DECLARE c record; BEGIN FOR c IN SELECT con.conname FROM pg_constraint con " +
+                "JOIN pg_attribute a ON a.attrelid = con.conrelid AND a.attnum = ALL (con.conkey) " +
+                "WHERE con.conrelid = 'posts'::regclass AND con.contype = 'u' AND a.attname = 'az_blob_name' " +
+                "AND array_length(con.conkey, 1) = 1 LOOP " +
+                "EXECUTE format('ALTER TABLE posts DROP CONSTRAINT %I', c.conname); END LOOP; END $$");
+
+        //sekvence za ID-je s korakom 50 (glej @SequenceGenerator v Posts/Rating)
+        alignIdSequence("posts", "posts_id_seq");
+        alignIdSequence("ratings", "ratings_id_seq");
+    }
+
+    // Stare baze imajo id kot identity stolpec s korakom 1; njegova sekvenca ima isto ime, kot ga pričakuje
+    // Hibernate, zato ji samo povečamo korak. Vrednosti ostanejo unikatne tudi za stare replike, ki še
+    // vstavljajo preko identity (vsak nextval je zgornja meja bloka, ki ga nihče drug ne uporablja).
+    private void alignIdSequence(String table, String sequence) {
+        Boolean identity;
+        try {
+            identity = jdbcTemplate.queryForObject(
+                    "SELECT is_identity = 'YES' FROM information_schema.columns " +
+                    "WHERE table_schema = current_schema() AND table_name = ? AND column_name = 'id'",
+                    Boolean.class, table);
+        } catch (Exception e) {
+            System.err.println("[SchemaInitializer] Failed to inspect " + table + ".id -> " + e.getMessage());
+            return;
+        }
+        if (Boolean.TRUE.equals(identity)) {
+            execute("ALTER TABLE " + table + " ALTER COLUMN id SET INCREMENT BY " + ID_ALLOCATION_SIZE);
+        } else {
+            execute("ALTER SEQUENCE IF EXISTS " + sequence + " INCREMENT BY " + ID_ALLOCATION_SIZE);
+        }
+    }
+
+    private static String searchVector(String row) {
+        return "setweight(to_tsvector('simple', coalesce(" + row + ".title, '')), 'A') || " +
+               "setweight(to_tsvector('simple', coalesce(" + row + ".description, '')), 'B')";
+    }
+
+    // CASE tag WHEN 'ART' THEN 1 WHEN 'MUSIC' THEN 2 ... END, isti biti kot Tag.bit()
+    private static String tagBitCase() {
+        StringJoiner sql = new StringJoiner(" ", "CASE tag ", " ELSE 0 END");
+        for (Tag t : Tag.values()) sql.add("WHEN '" + t.name() + "' THEN " + t.bit());
+        return sql.toString();
+    }
+
+    // pg_trgm je nameščen in indeks obstaja -> PostsServ lahko uporabi rangirano iskanje
+    public boolean isTrigramAvailable() {
+        return trigramAvailable;
+    }
+
+    // stolpec search_vector in njegov GIN indeks obstajata -> /posts/search/text deluje
+    public boolean isFullTextAvailable() {
+        return fullTextAvailable;
+    }
+
+    private boolean execute(String sql) {
+        try {
+            jdbcTemplate.execute(sql);
+            return true;
+        } catch (Exception e) {
+            System.err.println("[SchemaInitializer] Failed: " + sql + " -> " + e.getMessage());
+            return false;
+        }
+    }
+}
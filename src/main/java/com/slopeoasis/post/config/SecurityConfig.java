@@ -21,6 +21,7 @@ public class SecurityConfig implements WebMvcConfigurer {
                     .excludePathPatterns(
                     "/posts/search/**",
                     "/posts/tag/**",
+                    "/posts/tags",
                     "/posts/public/**",
                     "/posts/*/public-sas",
                     "/posts/seller/**"
@@ -0,0 +1,33 @@
+package com.slopeoasis.post.controller;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.slopeoasis.post.service.BulkheadFullException;
+
+/**
+ * Full bulkhead -> 503 with Retry-After. Spring matches handlers along the cause chain, so this also covers
+ * wrapped rejections, e.g. a DB bulkhead rejection surfacing as CannotCreateTransactionException.
+ */
+@RestControllerAdvice
+public class BulkheadExceptionHandler {
+
+    private final String retryAfterSeconds;
+
+    public BulkheadExceptionHandler(@Value("${bulkhead.retry-after:1s}") Duration retryAfter) {
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<String> bulkheadFull(BulkheadFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .body("Service busy (" + e.getBulkhead() + "), retry later");
+    }
+}
@@ -0,0 +1,81 @@
+package com.slopeoasis.post.controller;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * A single byte range from a Range header (RFC 9110, 14.2), resolved against the blob length; end is inclusive.
+ * Only one range per request is served: resumable and segmented downloads ask for one range at a time, and
+ * for multiple or malformed ranges the full blob is sent, which the RFC allows.
+ */
+record ByteRange(long start, long end) {
+
+    // Range ni mogoče izpolniti (npr. začetek za koncem bloba) -> 416
+    static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    long length() {
+        return end - start + 1;
+    }
+
+    String contentRange(long total) {
+        return "bytes " + start + "-" + end + "/" + total;
+    }
+
+    /**
+     * @return null, ko se pošlje celoten blob (ni headerja, neveljaven ali več razponov)
+     */
+    static ByteRange parse(String header, long total) {
+        if (header == null) return null;
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) return null;
+        String spec = value.substring(6).trim();
+        if (spec.isEmpty() || spec.indexOf(',') >= 0) return null;
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // bytes=-N: zadnjih N bajtov
+                if (last.isEmpty()) return null;
+                long suffix = parseNonNegative(last);
+                if (suffix == 0 || total == 0) return UNSATISFIABLE;
+                return new ByteRange(Math.max(0, total - suffix), total - 1);
+            }
+            long start = parseNonNegative(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : parseNonNegative(last);
+            if (end < start) return null;
+            if (start >= total) return UNSATISFIABLE;
+            return new ByteRange(start, Math.min(end, total - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * If-Range: razpon velja samo, če se validator ujema s trenutnim blobom, sicer se pošlje celoten blob.
+     * ETag se primerja strogo (šibki se nikoli ne ujemajo), datum pa mora biti točno Last-Modified.
+     */
+    static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) return true;
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return etag != null && !etag.startsWith("W/") && value.equals(etag);
+        }
+        if (lastModified < 0) return false;
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.IF_RANGE, value);
+        try {
+            // datum v headerju ima natančnost sekunde
+            return headers.getFirstDate(HttpHeaders.IF_RANGE) == lastModified / 1000 * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static long parseNonNegative(String digits) {
+        for (int i = 0; i < digits.length(); i++) {
+            if (!Character.isDigit(digits.charAt(i))) throw new NumberFormatException(digits);
+        }
+        return Long.parseLong(digits);
+    }
+}
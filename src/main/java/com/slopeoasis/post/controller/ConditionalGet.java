@@ -0,0 +1,55 @@
+package com.slopeoasis.post.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Evaluates If-None-Match / If-Modified-Since against validators computed before the response body is loaded.
+ * Unlike WebRequest.checkNotModified it doesn't write headers itself: a 200 carries the validators of the data
+ * actually served (a PostCache snapshot may briefly lag the database), so the validator used for the check
+ * and the one sent back can differ.
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() {}
+
+    // If-None-Match ima prednost; If-Modified-Since se upošteva samo, če ga ni (RFC 9110, 13.2.2)
+    static boolean isNotModified(WebRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) return matches(ifNoneMatch, etag);
+        String ifModifiedSinceHeader = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSinceHeader == null || lastModified < 0) return false;
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSinceHeader);
+        // -1, če datuma ni mogoče prebrati
+        long ifModifiedSince = headers.getIfModifiedSince();
+        // datum v headerju ima natančnost sekunde
+        return ifModifiedSince >= 0 && lastModified / 1000 * 1000 <= ifModifiedSince;
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag, long lastModified, CacheControl cacheControl, String... vary) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(vary);
+        if (lastModified >= 0) builder.lastModified(lastModified);
+        return builder.build();
+    }
+
+    // šibka primerjava (W/ se ignorira), kot jo zahteva If-None-Match
+    private static boolean matches(String ifNoneMatch, String etag) {
+        String current = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(current)) return true;
+        }
+        return false;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
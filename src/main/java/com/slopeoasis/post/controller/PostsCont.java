@@ -1,7 +1,11 @@
 package com.slopeoasis.post.controller;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -9,6 +13,8 @@ import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,50 +26,94 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpEntity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
 import com.slopeoasis.post.entity.Posts;
+import com.slopeoasis.post.entity.Posts.PreviewSize;
 import com.slopeoasis.post.entity.Posts.Status;
 import com.slopeoasis.post.entity.Posts.Tag;
+import com.slopeoasis.post.entity.PreviewVariant;
 import com.slopeoasis.post.entity.Rating;
+import com.slopeoasis.post.entity.RatingStats;
 import com.slopeoasis.post.service.AzureBlobServ;
+import com.slopeoasis.post.service.AzureBlobServ.BlobMetadata;
+import com.slopeoasis.post.service.BlobMetadataServ;
+import com.slopeoasis.post.service.BlobUploadPipeline;
+import com.slopeoasis.post.service.BlobUploadPipeline.UploadFailedException;
+import com.slopeoasis.post.service.BlobUploadPipeline.UploadedBlobs;
+import com.slopeoasis.post.service.BulkheadFullException;
+import com.slopeoasis.post.service.FeedServ;
+import com.slopeoasis.post.service.PostSearchServ;
 import com.slopeoasis.post.service.PostsServ;
+import com.slopeoasis.post.service.PostsServ.BlobNotAllowedException;
+import com.slopeoasis.post.service.PostsServ.FileReplacement;
+import com.slopeoasis.post.service.PostsServ.PostVersion;
 import com.slopeoasis.post.service.PostsServ.RatingSummary;
+import com.slopeoasis.post.service.PurchaseServ;
+import com.slopeoasis.post.service.StreamingUploadServ;
+import com.slopeoasis.post.service.StreamingUploadServ.StreamedUpload;
+import com.slopeoasis.post.service.StreamingUploadServ.StreamingUploadException;
+import com.slopeoasis.post.service.TagFilter;
+import com.slopeoasis.post.service.UserServiceClient;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/posts")
 public class PostsCont {
 
+    // medpomnilnik za kopiranje prenosa (/download) v odgovor
+    private static final int DOWNLOAD_BUFFER_BYTES = 64 * 1024;
+
     private final PostsServ postsServ;
+    private final PostSearchServ postSearchServ;
+    private final FeedServ feedServ;
     private final AzureBlobServ azureBlobServ;
-    private final RestTemplate restTemplate;
+    private final BlobMetadataServ blobMetadataServ;
+    private final BlobUploadPipeline uploadPipeline;
+    private final StreamingUploadServ streamingUploadServ;
+    private final PurchaseServ purchaseServ;
+    private final UserServiceClient userServiceClient;
     private final String internalApiKey;
-    private final String userApiUrl;
     private final int defaultSasMinutes;
     private final int minSasMinutes;
     private final int maxSasMinutes;
+    // javni odgovori: lahko jih hranijo tudi deljeni cachi (CDN, proxy)
+    private final CacheControl publicCache;
+    // odgovori za prijavljenega uporabnika: samo brskalnik, vsakič preveri z ETag (304 je poceni)
+    private final CacheControl privateCache = CacheControl.noCache().cachePrivate();
 
-    public PostsCont(PostsServ postsServ, AzureBlobServ azureBlobServ, RestTemplate restTemplate,
+    public PostsCont(PostsServ postsServ, PostSearchServ postSearchServ, FeedServ feedServ, AzureBlobServ azureBlobServ,
+                     BlobMetadataServ blobMetadataServ, BlobUploadPipeline uploadPipeline, StreamingUploadServ streamingUploadServ,
+                     PurchaseServ purchaseServ, UserServiceClient userServiceClient,
                      @org.springframework.beans.factory.annotation.Value("${sas.default.minutes:60}") int defaultSasMinutes,
                      @org.springframework.beans.factory.annotation.Value("${sas.min.minutes:1}") int minSasMinutes,
                      @org.springframework.beans.factory.annotation.Value("${sas.max.minutes:120}") int maxSasMinutes,
                      @Value("${internal.api.key:}") String internalApiKey,
-                     @Value("${user.api.url:http://localhost:8080}") String userApiUrl) {
+                     @Value("${http.cache.public-max-age:30s}") Duration publicMaxAge) {
         this.postsServ = postsServ;
+        this.postSearchServ = postSearchServ;
+        this.feedServ = feedServ;
         this.azureBlobServ = azureBlobServ;
-        this.restTemplate = restTemplate;
+        this.blobMetadataServ = blobMetadataServ;
+        this.uploadPipeline = uploadPipeline;
+        this.streamingUploadServ = streamingUploadServ;
+        this.purchaseServ = purchaseServ;
+        this.userServiceClient = userServiceClient;
         this.defaultSasMinutes = defaultSasMinutes;
         this.minSasMinutes = minSasMinutes;
         this.maxSasMinutes = maxSasMinutes;
         this.internalApiKey = internalApiKey;
-        this.userApiUrl = userApiUrl;
+        this.publicCache = CacheControl.maxAge(publicMaxAge).cachePublic();
     }
 
     //za kreiranje novih objav
@@ -72,7 +122,8 @@ public class PostsCont {
         @ApiResponse(responseCode = "201", description = "Post created"),
         @ApiResponse(responseCode = "400", description = "Invalid request"),
         @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError"),
-        @ApiResponse(responseCode = "500", description = "Failed to upload file")
+        @ApiResponse(responseCode = "500", description = "Failed to upload file"),
+        @ApiResponse(responseCode = "503", description = "Blob storage busy, retry later")
     })
     @PostMapping
     public ResponseEntity<?> createPost(
@@ -88,9 +139,7 @@ public class PostsCont {
         if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         
         // Parse tags from comma-separated string
-        List<String> tagsList = tagsStr != null && !tagsStr.isBlank() 
-            ? java.util.Arrays.asList(tagsStr.split(",")) 
-            : new java.util.ArrayList<>();
+        List<String> tagsList = splitTags(tagsStr);
         
         // Validate tag format
         Optional<Set<Tag>> tagsOpt = parseTags(tagsList);
@@ -104,29 +153,16 @@ public class PostsCont {
             return ResponseEntity.badRequest().body("Invalid status");
         }
         
-        // Upload main file to Azure
+        // Upload main file and preview images to Azure (vzporedno)
         if (mainFile == null || mainFile.isEmpty()) {
             return ResponseEntity.badRequest().body("Main file is required");
         }
-        String mainBlobName;
+        UploadedBlobs uploaded;
         try {
-            mainBlobName = azureBlobServ.uploadFile(mainFile);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to upload main file");
-        }
-        
-        // Upload preview images to Azure
-        List<String> previewBlobNames = new java.util.ArrayList<>();
-        if (previewImages != null) {
-            for (MultipartFile preview : previewImages) {
-                if (preview != null && !preview.isEmpty()) {
-                    try {
-                        previewBlobNames.add(azureBlobServ.uploadFile(preview));
-                    } catch (Exception e) {
-                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to upload preview image");
-                    }
-                }
-            }
+            uploaded = uploadPipeline.uploadAll(mainFile, previewImages, userId);
+        } catch (UploadFailedException e) {
+            throwIfBulkheadFull(e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
         }
         
         // Create the post
@@ -135,13 +171,18 @@ public class PostsCont {
         p.setSellerId(userId);
         p.setDescription(description);
         p.setTags(tagsOpt.orElseGet(java.util.HashSet::new));
-        p.setAzBlobName(mainBlobName);
-        p.setPreviewImages(previewBlobNames);
+        p.setAzBlobName(uploaded.mainBlobName);
+        p.setPreviewImages(uploaded.previewBlobNames);
         p.setPriceUSD(priceUSD);
         p.setCopies(copies);
         p.setStatus(status);
         
-        return new ResponseEntity<>(postsServ.createPost(p), HttpStatus.CREATED);
+        try {
+            return new ResponseEntity<>(postsServ.createPost(p), HttpStatus.CREATED);
+        } catch (RuntimeException e) {
+            uploadPipeline.discard(uploaded.all());
+            throw e;
+        }
     }
 
     //za urejanje obstoječih objav
@@ -150,7 +191,7 @@ public class PostsCont {
         @ApiResponse(responseCode = "200", description = "Post updated"),
         @ApiResponse(responseCode = "400", description = "Invalid request"),
         @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError"),
-        @ApiResponse(responseCode = "403", description = "Forbidden or post not found")
+        @ApiResponse(responseCode = "403", description = "Forbidden, post not found or blob of another seller")
     })
     @PutMapping("/{id}")
     public ResponseEntity<?> editPost(@PathVariable Integer id, @RequestBody UpdatePostRequest req,
@@ -167,9 +208,14 @@ public class PostsCont {
         updates.setCopies(req.copies);
         if (req.tags != null) updates.setTags(tagsOpt.orElseGet(java.util.HashSet::new));
 
-        return postsServ.editPost(id, userId, updates)
-                .<ResponseEntity<?>>map(ResponseEntity::ok)
-                .orElse(ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed or post not found"));
+        if (req.previewImages != null) recordUnknownBlobs(req.previewImages);
+        try {
+            return postsServ.editPost(id, userId, updates)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed or post not found"));
+        } catch (BlobNotAllowedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Blob not allowed for this post");
+        }
     }
 
     //za spreminjanje statusa objav
@@ -195,16 +241,23 @@ public class PostsCont {
     @Operation(summary = "Update main file reference")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "File reference updated"),
+        @ApiResponse(responseCode = "400", description = "newBlobName is required"),
         @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError"),
-        @ApiResponse(responseCode = "403", description = "Forbidden or post not found")
+        @ApiResponse(responseCode = "403", description = "Forbidden, post not found or blob of another seller")
     })
     @PutMapping("/{id}/file")
     public ResponseEntity<?> updateFile(@PathVariable Integer id, @RequestBody FileUpdateRequest req,
                                         @RequestAttribute(name = "X-User-Id", required = false) String userId) {
         if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        return postsServ.updatePostFile(id, userId, req.newBlobName)
-                .<ResponseEntity<?>>map(ResponseEntity::ok)
-                .orElse(ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed or post not found"));
+        if (req.newBlobName == null || req.newBlobName.isBlank()) return ResponseEntity.badRequest().body("newBlobName is required");
+        recordUnknownBlobs(List.of(req.newBlobName));
+        try {
+            return postsServ.updatePostFile(id, userId, req.newBlobName)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed or post not found"));
+        } catch (BlobNotAllowedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Blob not allowed for this post");
+        }
     }
 
     //za posodabljanje glavne datoteke posta (multipart upload nove datoteke)
@@ -214,7 +267,8 @@ public class PostsCont {
         @ApiResponse(responseCode = "400", description = "File is required"),
         @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError"),
         @ApiResponse(responseCode = "403", description = "Forbidden or post not found"),
-        @ApiResponse(responseCode = "500", description = "Failed to upload file")
+        @ApiResponse(responseCode = "500", description = "Failed to upload file"),
+        @ApiResponse(responseCode = "503", description = "Blob storage busy, retry later")
     })
     @PutMapping(path = "/{id}/file-multipart", consumes = org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> updateFileMultipart(@PathVariable Integer id,
@@ -222,42 +276,174 @@ public class PostsCont {
                                                  @RequestAttribute(name = "X-User-Id", required = false) String userId) {
         if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         if (file == null || file.isEmpty()) return ResponseEntity.badRequest().body("File is required");
+        String newBlob;
         try {
-            String newBlob = azureBlobServ.uploadFile(file);
-            return postsServ.updatePostFile(id, userId, newBlob)
-                    .<ResponseEntity<?>>map(ResponseEntity::ok)
-                    .orElse(ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed or post not found"));
-        } catch (Exception e) {
+            newBlob = uploadPipeline.uploadAll(file, null, userId).mainBlobName;
+        } catch (UploadFailedException e) {
+            throwIfBulkheadFull(e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to upload file");
         }
+        Optional<FileReplacement> updated;
+        try {
+            updated = postsServ.replacePostFile(id, userId, newBlob);
+        } catch (RuntimeException e) {
+            uploadPipeline.discard(List.of(newBlob));
+            throw e;
+        }
+        // nespremenjena datoteka: post ostane na obstoječem blobu, referenca novega uploada se sprosti
+        if (updated.isEmpty() || !updated.get().replaced) {
+            uploadPipeline.discard(List.of(newBlob));
+        }
+        if (updated.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed or post not found");
+        }
+        return ResponseEntity.ok(updated.get().post);
+    }
+
+    //za kreiranje objave s streaming uploadom: telo se bere kot tok in gre neposredno v blob storage (brez zapisa na disk)
+    //tekstovna polja (title, description, priceUSD, copies, tags, status) morajo biti v zahtevku pred datotekami
+    @Operation(summary = "Create post (streaming upload)")
+    @ApiResponses({
+        @ApiResponse(responseCode = "201", description = "Post created"),
+        @ApiResponse(responseCode = "400", description = "Invalid request"),
+        @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "413", description = "Upload too large"),
+        @ApiResponse(responseCode = "500", description = "Failed to upload file"),
+        @ApiResponse(responseCode = "503", description = "Blob storage busy, retry later")
+    })
+    @PostMapping(path = "/stream", consumes = org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> createPostStreaming(HttpServletRequest request,
+                                                 @RequestAttribute(name = "X-User-Id", required = false) String userId) {
+        if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        StreamedUpload upload;
+        try {
+            upload = streamingUploadServ.receive(request, userId, this::validatePostFields);
+        } catch (StreamingUploadException e) {
+            return ResponseEntity.status(e.getStatus()).body(e.getMessage());
+        }
+        if (upload.blobs("file").size() != 1) {
+            uploadPipeline.discard(upload.allBlobs());
+            return ResponseEntity.badRequest().body("Exactly one main file is required");
+        }
+
+        Map<String, String> f = upload.fields;
+        Posts p = new Posts();
+        p.setTitle(f.get("title"));
+        p.setSellerId(userId);
+        p.setDescription(f.get("description"));
+        p.setTags(parseTags(splitTags(f.get("tags"))).orElseGet(java.util.HashSet::new));
+        p.setAzBlobName(upload.blobs("file").get(0));
+        p.setPreviewImages(new java.util.ArrayList<>(upload.blobs("previewImages")));
+        p.setPriceUSD(Double.valueOf(f.get("priceUSD")));
+        p.setCopies(Integer.valueOf(f.get("copies")));
+        p.setStatus(Status.valueOf(f.get("status")));
+
+        try {
+            return new ResponseEntity<>(postsServ.createPost(p), HttpStatus.CREATED);
+        } catch (RuntimeException e) {
+            uploadPipeline.discard(upload.allBlobs());
+            throw e;
+        }
+    }
+
+    //za zamenjavo glavne datoteke s streaming uploadom (del "file"), brez zapisa na disk
+    @Operation(summary = "Upload new main file (streaming)")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "File updated"),
+        @ApiResponse(responseCode = "400", description = "File is required"),
+        @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden or post not found"),
+        @ApiResponse(responseCode = "413", description = "Upload too large"),
+        @ApiResponse(responseCode = "500", description = "Failed to upload file"),
+        @ApiResponse(responseCode = "503", description = "Blob storage busy, retry later")
+    })
+    @PutMapping(path = "/{id}/file-stream", consumes = org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> updateFileStreaming(@PathVariable Integer id, HttpServletRequest request,
+                                                 @RequestAttribute(name = "X-User-Id", required = false) String userId) {
+        if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        StreamedUpload upload;
+        try {
+            upload = streamingUploadServ.receive(request, userId, fields -> null);
+        } catch (StreamingUploadException e) {
+            return ResponseEntity.status(e.getStatus()).body(e.getMessage());
+        }
+        if (upload.blobs("file").size() != 1) {
+            uploadPipeline.discard(upload.allBlobs());
+            return ResponseEntity.badRequest().body("File is required");
+        }
+        Optional<FileReplacement> updated;
+        try {
+            updated = postsServ.replacePostFile(id, userId, upload.blobs("file").get(0));
+        } catch (RuntimeException e) {
+            uploadPipeline.discard(upload.allBlobs());
+            throw e;
+        }
+        if (updated.isEmpty() || !updated.get().replaced) {
+            uploadPipeline.discard(upload.allBlobs());
+        }
+        if (updated.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed or post not found");
+        }
+        return ResponseEntity.ok(updated.get().post);
     }
 
     //za pridobivanje info o postu glede na id
     @Operation(summary = "Get post by id")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "304", description = "Not modified (If-None-Match / If-Modified-Since)"),
         @ApiResponse(responseCode = "404", description = "Post not found")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<?> getPost(@PathVariable Integer id) {
+    public ResponseEntity<?> getPost(@PathVariable Integer id,
+                                     @RequestAttribute(name = "X-User-Id", required = false) String userId,
+                                     WebRequest request) {
+        // pogojni GET se odloči z enim queryjem za validatorje, preden se naložijo post, ocene in kupci
+        Optional<PostVersion> version = postsServ.getPostVersion(id);
+        if (version.isEmpty()) return ResponseEntity.notFound().build();
+        boolean purchased = postsServ.isBuyer(id, userId);
+        String etag = version.get().etag(purchased);
+        if (ConditionalGet.isNotModified(request, etag, version.get().lastModified())) {
+            return ConditionalGet.notModified(etag, version.get().lastModified(), privateCache, HttpHeaders.AUTHORIZATION);
+        }
         Optional<Posts> postOpt = postsServ.getPostInfo(id);
         if (postOpt.isEmpty()) return ResponseEntity.notFound().build();
-        RatingSummary summary = postsServ.getRatingSummary(id);
-        return ResponseEntity.ok(new PostWithRating(postOpt.get(), summary));
+        Optional<RatingStats> stats = postsServ.getRatingStats(id);
+        PostVersion served = PostVersion.of(postOpt.get(), stats.orElse(null));
+        return ResponseEntity.ok()
+                .cacheControl(privateCache)
+                .varyBy(HttpHeaders.AUTHORIZATION)
+                .eTag(served.etag(purchased))
+                .lastModified(served.lastModified())
+                .body(new PostWithRating(postOpt.get(), stats.map(RatingSummary::of).orElse(RatingSummary.EMPTY),
+                        postOpt.get().getBuyerCount(), purchased));
     }
 
     //za pridobivanje info o postu glede na id (public version without auth)
     @Operation(summary = "Get public post by id")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "304", description = "Not modified (If-None-Match / If-Modified-Since)"),
         @ApiResponse(responseCode = "404", description = "Post not found")
     })
     @GetMapping("/public/{id}")
-    public ResponseEntity<?> getPostPublic(@PathVariable Integer id) {
+    public ResponseEntity<?> getPostPublic(@PathVariable Integer id, WebRequest request) {
+        Optional<PostVersion> version = postsServ.getPostVersion(id);
+        if (version.isEmpty()) return ResponseEntity.notFound().build();
+        String etag = version.get().etag();
+        if (ConditionalGet.isNotModified(request, etag, version.get().lastModified())) {
+            return ConditionalGet.notModified(etag, version.get().lastModified(), publicCache);
+        }
         Optional<Posts> postOpt = postsServ.getPostInfo(id);
         if (postOpt.isEmpty()) return ResponseEntity.notFound().build();
-        RatingSummary summary = postsServ.getRatingSummary(id);
-        return ResponseEntity.ok(new PostWithRating(postOpt.get(), summary));
+        Optional<RatingStats> stats = postsServ.getRatingStats(id);
+        PostVersion served = PostVersion.of(postOpt.get(), stats.orElse(null));
+        return ResponseEntity.ok()
+                .cacheControl(publicCache)
+                .eTag(served.etag())
+                .lastModified(served.lastModified())
+                .body(new PostWithRating(postOpt.get(), stats.map(RatingSummary::of).orElse(RatingSummary.EMPTY),
+                        postOpt.get().getBuyerCount(), null));
     }
 
     //za preverjanje ali je post na voljo za nakup
@@ -275,10 +461,12 @@ public class PostsCont {
 
     //za dodajanje kupca k postu (po nakupu)
     @Operation(summary = "Add buyer to post")
+    //izid nakupa je v headerju X-Purchase-Outcome (PURCHASED ali ALREADY_OWNED pri 200)
     @ApiResponses({
-        @ApiResponse(responseCode = "200", description = "Buyer added"),
+        @ApiResponse(responseCode = "200", description = "Buyer added or already owns the post"),
         @ApiResponse(responseCode = "400", description = "Cannot add buyer or post not found"),
-        @ApiResponse(responseCode = "403", description = "Forbidden")
+        @ApiResponse(responseCode = "403", description = "Forbidden"),
+        @ApiResponse(responseCode = "409", description = "Sold out")
     })
     @PostMapping("/{id}/buyers")
     public ResponseEntity<?> addBuyer(@PathVariable Integer id, @RequestBody AddBuyerRequest req,
@@ -288,9 +476,22 @@ public class PostsCont {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Forbidden");
             }
         }
-        return postsServ.addBuyer(id, req.buyerId)
-                .<ResponseEntity<?>>map(ResponseEntity::ok)
-                .orElse(ResponseEntity.badRequest().body("Cannot add buyer or post not found"));
+        if (req.buyerId == null || req.buyerId.isBlank()) return ResponseEntity.badRequest().body("buyerId is required");
+
+        PurchaseServ.Outcome outcome = purchaseServ.purchase(id, req.buyerId);
+        switch (outcome) {
+            case PURCHASED:
+            case ALREADY_OWNED:
+                return postsServ.getPostInfo(id)
+                        .<ResponseEntity<?>>map(p -> ResponseEntity.ok().header("X-Purchase-Outcome", outcome.name()).body(p))
+                        .orElse(ResponseEntity.badRequest().body("Cannot add buyer or post not found"));
+            case SOLD_OUT:
+                return ResponseEntity.status(HttpStatus.CONFLICT).header("X-Purchase-Outcome", outcome.name()).body("Sold out");
+            case UNAVAILABLE:
+                return ResponseEntity.badRequest().header("X-Purchase-Outcome", outcome.name()).body("Post not available for purchase");
+            default:
+                return ResponseEntity.badRequest().header("X-Purchase-Outcome", outcome.name()).body("Cannot add buyer or post not found");
+        }
     }
 
     //za pridobivanje postov določenega sellerja
@@ -299,11 +500,14 @@ public class PostsCont {
         @ApiResponse(responseCode = "200", description = "OK")
     })
     @GetMapping("/seller/{sellerId}")
-    public List<Posts> bySeller(@PathVariable String sellerId,
-                                @RequestParam(defaultValue = "0") int page,
-                                @RequestParam(defaultValue = "20") int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return postsServ.getPostsBySeller(sellerId, pageable);
+    public ResponseEntity<?> bySeller(@PathVariable String sellerId,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "20") int size,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) PreviewSize previewSize) {
+        if (cursor != null) return cursorPage(postsServ.summarizePage(postsServ.getPostsBySeller(sellerId, cursor, size), previewSize));
+        Pageable pageable = PageRequest.of(page, size, PostsServ.LISTING_SORT);
+        return ResponseEntity.ok(postsServ.summarize(postsServ.getPostsBySeller(sellerId, pageable), previewSize));
     }
 
     //za pridobivanje postov ki jih je kupil določen buyer
@@ -312,11 +516,14 @@ public class PostsCont {
         @ApiResponse(responseCode = "200", description = "OK")
     })
     @GetMapping("/buyer/{buyerId}")
-    public List<Posts> byBuyer(@PathVariable String buyerId,
-                               @RequestParam(defaultValue = "0") int page,
-                               @RequestParam(defaultValue = "20") int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return postsServ.getPostsByBuyer(buyerId, pageable);
+    public ResponseEntity<?> byBuyer(@PathVariable String buyerId,
+                                     @RequestParam(defaultValue = "0") int page,
+                                     @RequestParam(defaultValue = "20") int size,
+                                     @RequestParam(required = false) String cursor,
+                                     @RequestParam(required = false) PreviewSize previewSize) {
+        if (cursor != null) return cursorPage(postsServ.summarizePage(postsServ.getPostsByBuyer(buyerId, cursor, size), previewSize));
+        Pageable pageable = PageRequest.of(page, size, PostsServ.LISTING_SORT);
+        return ResponseEntity.ok(postsServ.summarize(postsServ.getPostsByBuyer(buyerId, pageable), previewSize));
     }
 
     //za pridobivanje postov po tagu
@@ -328,11 +535,35 @@ public class PostsCont {
     @GetMapping("/tag/{tag}")
     public ResponseEntity<?> byTag(@PathVariable String tag,
                                    @RequestParam(defaultValue = "0") int page,
-                                   @RequestParam(defaultValue = "20") int size) {
+                                   @RequestParam(defaultValue = "20") int size,
+                                   @RequestParam(required = false) String cursor,
+                                   @RequestParam(required = false) PreviewSize previewSize) {
         Tag t;
         try { t = Tag.valueOf(tag); } catch (Exception e) { return ResponseEntity.badRequest().body("Invalid tag"); }
-        Pageable pageable = PageRequest.of(page, size);
-        return ResponseEntity.ok(postsServ.getPostsByTag(t, pageable));
+        if (cursor != null) return cursorPage(postsServ.summarizePage(postsServ.getPostsByTag(t, cursor, size), previewSize));
+        Pageable pageable = PageRequest.of(page, size, PostsServ.LISTING_SORT);
+        return ResponseEntity.ok(postsServ.summarize(postsServ.getPostsByTag(t, pageable), previewSize));
+    }
+
+    //za filtriranje postov po več tagih hkrati (homepage z več interesi): any=vsaj eden, all=vsi, none=noben
+    @Operation(summary = "List posts by tag filter")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "400", description = "Invalid tag")
+    })
+    @GetMapping("/tags")
+    public ResponseEntity<?> byTags(@RequestParam(required = false) String any,
+                                    @RequestParam(required = false) String all,
+                                    @RequestParam(required = false) String none,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "20") int size,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) PreviewSize previewSize) {
+        Optional<TagFilter> filter = TagFilter.parse(any, all, none);
+        if (filter.isEmpty()) return ResponseEntity.badRequest().body("Invalid tag");
+        if (cursor != null) return cursorPage(postsServ.summarizePage(postsServ.getPostsByTags(filter.get(), cursor, size), previewSize));
+        Pageable pageable = PageRequest.of(page, size, PostsServ.LISTING_SORT);
+        return ResponseEntity.ok(postsServ.summarize(postsServ.getPostsByTags(filter.get(), pageable), previewSize));
     }
 
     //za iskanje postov po naslovu
@@ -344,12 +575,35 @@ public class PostsCont {
     public ResponseEntity<?> searchTitle(@RequestParam String q,
                                          @RequestParam(defaultValue = "false") boolean anyStatus,
                                          @RequestParam(defaultValue = "0") int page,
-                                         @RequestParam(defaultValue = "20") int size) {
-        Pageable pageable = PageRequest.of(page, size);
+                                         @RequestParam(defaultValue = "20") int size,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) PreviewSize previewSize) {
+        if (cursor != null) {
+            return cursorPage(postsServ.summarizePage(anyStatus ? postsServ.searchByTitleAnyStatus(q, cursor, size) : postsServ.searchByTitle(q, cursor, size), previewSize));
+        }
+        Pageable pageable = PageRequest.of(page, size, PostsServ.LISTING_SORT);
         if (anyStatus) {
-            return ResponseEntity.ok(postsServ.searchByTitleAnyStatus(q, pageable));
+            return ResponseEntity.ok(postsServ.summarize(postsServ.searchByTitleAnyStatus(q, pageable), previewSize));
         }
-        return ResponseEntity.ok(postsServ.searchByTitle(q, pageable));
+        return ResponseEntity.ok(postsServ.summarize(postsServ.searchByTitle(q, pageable), previewSize));
+    }
+
+    //full-text iskanje po naslovu in opisu: rangirano (naslov > opis), besede kot predpone, z označenimi ujemanji
+    @Operation(summary = "Full-text search posts by title and description")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "400", description = "Empty query or invalid cursor"),
+        @ApiResponse(responseCode = "503", description = "Full-text index not available")
+    })
+    @GetMapping("/search/text")
+    public ResponseEntity<?> searchText(@RequestParam String q,
+                                        @RequestParam(defaultValue = "20") int size,
+                                        @RequestParam(required = false) String cursor) {
+        if (!postSearchServ.isAvailable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Full-text search not available");
+        }
+        if (postSearchServ.toTsQuery(q).isEmpty()) return ResponseEntity.badRequest().body("Query must contain a word");
+        return cursorPage(postSearchServ.search(q, cursor, size));
     }
 
     //za iskanje postov po imenu shranjene datoteke/blob-a, lahko jih dobimo več ker imamo partial match imen
@@ -361,67 +615,48 @@ public class PostsCont {
     public ResponseEntity<?> searchBlob(@RequestParam String q,
                                         @RequestParam(defaultValue = "false") boolean anyStatus,
                                         @RequestParam(defaultValue = "0") int page,
-                                        @RequestParam(defaultValue = "20") int size) {
-        Pageable pageable = PageRequest.of(page, size);
+                                        @RequestParam(defaultValue = "20") int size,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) PreviewSize previewSize) {
+        if (cursor != null) {
+            return cursorPage(postsServ.summarizePage(anyStatus ? postsServ.searchByBlobNameAnyStatus(q, cursor, size) : postsServ.searchByBlobName(q, cursor, size), previewSize));
+        }
+        Pageable pageable = PageRequest.of(page, size, PostsServ.LISTING_SORT);
         if (anyStatus) {
-            return ResponseEntity.ok(postsServ.searchByBlobNameAnyStatus(q, pageable));
+            return ResponseEntity.ok(postsServ.summarize(postsServ.searchByBlobNameAnyStatus(q, pageable), previewSize));
         }
-        return ResponseEntity.ok(postsServ.searchByBlobName(q, pageable));
+        return ResponseEntity.ok(postsServ.summarize(postsServ.searchByBlobName(q, pageable), previewSize));
     }
 
-    //za pridobivanje postov glede na uporabnikove teme/interese, uporabimo user API
+    //za pridobivanje postov glede na uporabnikove teme/interese, teme da user API (UserServiceClient, s cachem in odklopnikom)
     @Operation(summary = "Get posts by user themes")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "OK"),
         @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError"),
-        @ApiResponse(responseCode = "500", description = "Failed to fetch posts by themes")
+        @ApiResponse(responseCode = "500", description = "Failed to fetch posts by themes"),
+        @ApiResponse(responseCode = "503", description = "Database busy, retry later")
     })
     @GetMapping("/themes")
     public ResponseEntity<?> byThemes(@RequestAttribute(name = "X-User-Id", required = false) String userId,
-                                      @org.springframework.web.bind.annotation.RequestHeader(value = "Authorization", required = false) String authHeader) {
+                                      @org.springframework.web.bind.annotation.RequestHeader(value = "Authorization", required = false) String authHeader,
+                                      @RequestParam(defaultValue = "20") int size,
+                                      @RequestParam(required = false) String cursor) {
         if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Missing user ID");
         }
         
         try {
-            // Call user API to get user's themes, forwarding the auth token
-            String userApiThemesUrl = userApiUrl + "/users/themes";
-            
-            HttpHeaders headers = new HttpHeaders();
-            if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                headers.set("Authorization", authHeader);
-            }
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            ResponseEntity<String[]> themesResponse = restTemplate.exchange(
-                userApiThemesUrl, 
-                org.springframework.http.HttpMethod.GET, 
-                entity, 
-                String[].class
-            );
+            // teme iz cacha ali user API; ko user API ni dosegljiv, zadnje znane ali rezervne teme
+            Set<Tag> tags = userServiceClient.getThemes(userId, authHeader);
             
-            if (!themesResponse.hasBody() || themesResponse.getBody() == null) {
-                return ResponseEntity.ok(List.of());
+            // en združen, brez podvojitev, urejen in paginiran feed čez vse teme
+            Optional<PostsServ.CursorPage<Posts>> feed = feedServ.getFeed(userId, tags, cursor, size);
+            if (cursor == null) {
+                return ResponseEntity.ok(feed.map(f -> f.items).orElse(List.of()));
             }
-            
-            String[] themes = themesResponse.getBody();
-            List<Posts> allPosts = new java.util.ArrayList<>();
-            
-            // Fetch posts for each theme
-            for (String theme : themes) {
-                if (theme != null && !theme.isEmpty()) {
-                    try {
-                        List<Posts> postsForTheme = postsServ.getPostsByTag(Posts.Tag.valueOf(theme.toUpperCase()));
-                        allPosts.addAll(postsForTheme);
-                    } catch (IllegalArgumentException e) {
-                        System.out.println("[PostsCont] Invalid theme: " + theme);
-                        // Skip invalid themes
-                    }
-                }
-            }
-            
-            return ResponseEntity.ok(allPosts);
+            return cursorPage(feed);
         } catch (Exception e) {
+            throwIfBulkheadFull(e);
             System.err.println("[PostsCont] Error fetching themes/posts: " + e.getMessage());
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -446,36 +681,61 @@ public class PostsCont {
     //za pridobivanje vseh ocen posta
     @Operation(summary = "List ratings")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", description = "OK")
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "304", description = "Not modified (If-None-Match / If-Modified-Since)")
     })
     @GetMapping("/{id}/ratings")
-    public ResponseEntity<List<Rating>> ratings(@PathVariable Integer id) {
-        return ResponseEntity.ok(postsServ.getRatings(id));
+    public ResponseEntity<List<Rating>> ratings(@PathVariable Integer id, WebRequest request) {
+        // vsaka sprememba ocene poveča verzijo agregatov, zato je ta tudi validator za seznam
+        Optional<RatingStats> stats = postsServ.getRatingStats(id);
+        if (stats.isEmpty()) return ResponseEntity.ok(postsServ.getRatings(id));
+        String etag = PostsServ.ratingsETag(stats.get());
+        long lastModified = PostsServ.ratingsLastModified(stats.get());
+        if (ConditionalGet.isNotModified(request, etag, lastModified)) {
+            return ConditionalGet.notModified(etag, lastModified, privateCache);
+        }
+        return ResponseEntity.ok().cacheControl(privateCache).eTag(etag).lastModified(lastModified)
+                .body(postsServ.getRatings(id));
     }
 
     //za pridobivanje average ocene in števila ocen posta
     @Operation(summary = "Get rating summary")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", description = "OK")
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "304", description = "Not modified (If-None-Match / If-Modified-Since)")
     })
     @GetMapping("/{id}/ratings/summary")
-    public ResponseEntity<RatingSummary> ratingSummary(@PathVariable Integer id) {
-        return ResponseEntity.ok(postsServ.getRatingSummary(id));
+    public ResponseEntity<RatingSummary> ratingSummary(@PathVariable Integer id, WebRequest request) {
+        Optional<RatingStats> stats = postsServ.getRatingStats(id);
+        if (stats.isEmpty()) return ResponseEntity.ok(RatingSummary.EMPTY);
+        String etag = PostsServ.ratingsETag(stats.get());
+        long lastModified = PostsServ.ratingsLastModified(stats.get());
+        if (ConditionalGet.isNotModified(request, etag, lastModified)) {
+            return ConditionalGet.notModified(etag, lastModified, privateCache);
+        }
+        return ResponseEntity.ok().cacheControl(privateCache).eTag(etag).lastModified(lastModified)
+                .body(RatingSummary.of(stats.get()));
     }
 
-    //za pridobivanje metapodatkov datoteke posta iz Azure Blob Storage, ala velikost, tip
+    //za pridobivanje metapodatkov datoteke posta, ala velikost, tip; shranjeni so ob uploadu (BlobMetadataServ),
+    //storage se vpraša samo za stare blobe, ki jih reconciler še ni dopolnil
+    //size=SMALL|MEDIUM|LARGE pri preview sliki vrne metapodatke pomanjšane različice, če že obstaja
     @Operation(summary = "Get blob metadata")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "OK"),
-        @ApiResponse(responseCode = "404", description = "Post or blob not found")
+        @ApiResponse(responseCode = "404", description = "Post or blob not found"),
+        @ApiResponse(responseCode = "503", description = "Blob storage busy, retry later")
     })
     @GetMapping("/{id}/blob-metadata")
     public ResponseEntity<?> blobMetadata(@PathVariable Integer id,
-                                          @RequestParam(required = false) String blobName) {
+                                          @RequestParam(required = false) String blobName,
+                                          @RequestParam(required = false) PreviewSize size) {
         Optional<Posts> postOpt = postsServ.getPostInfo(id);
         if (postOpt.isEmpty()) return ResponseEntity.notFound().build();
         String effectiveBlob = blobName != null ? blobName : postOpt.get().getAzBlobName();
-        return azureBlobServ.getBlobMetadata(effectiveBlob)
+        // metapodatki pomanjšane različice preview slike (kot pri blob-sas), dokler je ni pa izvirnika
+        if (size != null) effectiveBlob = postOpt.get().previewVariant(effectiveBlob, size).orElse(effectiveBlob);
+        return blobMetadataServ.get(effectiveBlob)
                 .<ResponseEntity<?>>map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -486,34 +746,39 @@ public class PostsCont {
         @ApiResponse(responseCode = "200", description = "Preview images replaced"),
         @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError"),
         @ApiResponse(responseCode = "403", description = "Forbidden or post not found"),
-        @ApiResponse(responseCode = "500", description = "Failed to upload preview image")
+        @ApiResponse(responseCode = "500", description = "Failed to upload preview image"),
+        @ApiResponse(responseCode = "503", description = "Blob storage busy, retry later")
     })
     @PutMapping(path = "/{id}/previews-multipart", consumes = org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> replacePreviews(@PathVariable Integer id,
                                              @RequestParam(value = "previewImages", required = false) java.util.List<org.springframework.web.multipart.MultipartFile> previewImages,
                                              @RequestAttribute(name = "X-User-Id", required = false) String userId) {
         if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        java.util.List<String> previewBlobNames = new java.util.ArrayList<>();
-        if (previewImages != null) {
-            for (org.springframework.web.multipart.MultipartFile preview : previewImages) {
-                if (preview != null && !preview.isEmpty()) {
-                    try {
-                        previewBlobNames.add(azureBlobServ.uploadFile(preview));
-                    } catch (Exception e) {
-                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to upload preview image");
-                    }
-                }
-            }
+        UploadedBlobs uploaded;
+        try {
+            uploaded = uploadPipeline.uploadAll(null, previewImages, userId);
+        } catch (UploadFailedException e) {
+            throwIfBulkheadFull(e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
         }
-        Posts updates = new Posts();
-        updates.setPreviewImages(previewBlobNames);
-        return postsServ.editPost(id, userId, updates)
-                .<ResponseEntity<?>>map(ResponseEntity::ok)
-                .orElse(ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed or post not found"));
+        Optional<Posts> updated;
+        try {
+            updated = postsServ.replacePreviewImages(id, userId, uploaded.previewBlobNames);
+        } catch (RuntimeException e) {
+            uploadPipeline.discard(uploaded.all());
+            throw e;
+        }
+        if (updated.isEmpty()) {
+            uploadPipeline.discard(uploaded.all());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed or post not found");
+        }
+        return ResponseEntity.ok(updated.get());
     }
 
     //za generiranje časovno omejene SAS povezave za prenos datoteke
     //osnovna avtorizacija: dovoli le prodajalcu ali kupcu tega posta, casovno imejen na 60 minut privzeto, v application.properties/.env
+    //URL je znotraj časovnega okna (sas.cache.window-minutes) enak za vse zahtevke, zato ga brskalnik/CDN lahko predpomni
+    //size=SMALL|MEDIUM|LARGE pri preview sliki vrne SAS za pomanjšano različico (PreviewThumbnailServ), če že obstaja
     @Operation(summary = "Generate SAS for post blob")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "SAS generated"),
@@ -525,26 +790,23 @@ public class PostsCont {
     public ResponseEntity<?> blobSas(@PathVariable Integer id,
                                      @RequestParam(required = false) Integer minutes,
                                      @RequestParam(required = false) String blobName,
+                                     @RequestParam(required = false) PreviewSize size,
                                      @RequestAttribute(name = "X-User-Id", required = false) String userId) {
         if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         Optional<Posts> postOpt = postsServ.getPostInfo(id);
         if (postOpt.isEmpty()) return ResponseEntity.notFound().build();
         Posts post = postOpt.get();
 
-        boolean isSeller = post.getSellerId() != null && post.getSellerId().equals(userId);
-        boolean isBuyer = post.getBuyers() != null && post.getBuyers().contains(userId);
-        if (!isSeller && !isBuyer) {
+        if (!isEntitled(post, userId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed");
         }
 
         String effectiveBlob = blobName != null ? blobName : post.getAzBlobName();
-        if (blobName != null) {
-            boolean allowedBlob = effectiveBlob.equals(post.getAzBlobName()) ||
-                    (post.getPreviewImages() != null && post.getPreviewImages().contains(effectiveBlob));
-            if (!allowedBlob) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Blob not allowed for this post");
-            }
+        if (blobName != null && !isPostBlob(post, effectiveBlob)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Blob not allowed for this post");
         }
+        // pomanjšana različica preview slike, dokler ni ustvarjena pa izvirnik
+        if (size != null) effectiveBlob = post.previewVariant(effectiveBlob, size).orElse(effectiveBlob);
 
         int requested = (minutes == null) ? defaultSasMinutes : minutes;
         int ttl = Math.max(minSasMinutes, Math.min(requested, maxSasMinutes));
@@ -553,6 +815,86 @@ public class PostsCont {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    //za prenos datoteke preko storitve (za odjemalce, ki do storage domene ne morejo); dostop kot pri blob-sas.
+    //podpira Range/If-Range (nadaljevanje prenosa, vzporedni segmenti): en razpon na zahtevek, velikost in ETag
+    //sta iz shranjenih metapodatkov, iz storage-a se bere samo zahtevani razpon po blokih
+    @Operation(summary = "Download post blob (proxy, supports Range)")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Whole blob"),
+        @ApiResponse(responseCode = "206", description = "Requested byte range"),
+        @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden"),
+        @ApiResponse(responseCode = "404", description = "Post or blob not found"),
+        @ApiResponse(responseCode = "416", description = "Range not satisfiable"),
+        @ApiResponse(responseCode = "503", description = "Blob storage busy, retry later")
+    })
+    @GetMapping("/{id}/download")
+    public ResponseEntity<?> download(@PathVariable Integer id,
+                                      @RequestParam(required = false) String blobName,
+                                      @RequestAttribute(name = "X-User-Id", required = false) String userId,
+                                      HttpServletRequest request,
+                                      HttpServletResponse response) throws IOException {
+        if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        Optional<Posts> postOpt = postsServ.getPostInfo(id);
+        if (postOpt.isEmpty()) return ResponseEntity.notFound().build();
+        Posts post = postOpt.get();
+
+        if (!isEntitled(post, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed");
+        }
+        String effectiveBlob = blobName != null ? blobName : post.getAzBlobName();
+        if (blobName != null && !isPostBlob(post, effectiveBlob)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Blob not allowed for this post");
+        }
+
+        Optional<BlobMetadata> metaOpt = blobMetadataServ.get(effectiveBlob);
+        if (metaOpt.isEmpty()) return ResponseEntity.notFound().build();
+        BlobMetadata meta = metaOpt.get();
+        long total = meta.sizeBytes;
+        String etag = meta.etag != null ? meta.etag : (meta.sha256 != null ? "\"" + meta.sha256 + "\"" : null);
+        long lastModified = meta.lastModified != null ? meta.lastModified.toInstant().toEpochMilli() : -1;
+
+        ByteRange range = null;
+        if (ByteRange.ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE), total);
+        }
+        if (range == ByteRange.UNSATISFIABLE) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + total)
+                    .build();
+        }
+        long offset = range != null ? range.start() : 0;
+        long count = range != null ? range.length() : total;
+
+        // prvi blok se prenese že tu: manjkajoč blob je še vedno 404, ne prekinjen odgovor
+        InputStream in = null;
+        if (count > 0 && !"HEAD".equals(request.getMethod())) {
+            Optional<InputStream> opened = azureBlobServ.openRange(effectiveBlob, offset, count);
+            if (opened.isEmpty()) return ResponseEntity.notFound().build();
+            in = opened.get();
+        }
+
+        try (InputStream body = in) {
+            response.setStatus(range != null ? HttpStatus.PARTIAL_CONTENT.value() : HttpStatus.OK.value());
+            response.setContentType(meta.contentType != null ? meta.contentType : org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(count);
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (range != null) response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(total));
+            if (etag != null) response.setHeader(HttpHeaders.ETAG, etag);
+            if (lastModified >= 0) response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, privateCache.getHeaderValue());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(effectiveBlob).build().toString());
+            if (body != null) copyRange(body, response.getOutputStream(), count);
+        } catch (IOException e) {
+            // odjemalec je prekinil prenos (nadaljuje lahko z Range), ali pa je storage prekinil branje
+            System.err.println("[PostsCont] Download of " + effectiveBlob + " aborted: " + e.getMessage());
+        }
+        // odgovor je že zapisan
+        return null;
+    }
+
     @Operation(summary = "Generate public SAS for active post")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "SAS generated"),
@@ -562,7 +904,8 @@ public class PostsCont {
     @GetMapping("/{id}/public-sas")
     public ResponseEntity<?> publicSas(@PathVariable Integer id,
                                        @RequestParam(required = false) Integer minutes,
-                                       @RequestParam(required = false) String blobName) {
+                                       @RequestParam(required = false) String blobName,
+                                       @RequestParam(required = false) PreviewSize size) {
         Optional<Posts> postOpt = postsServ.getPostInfo(id);
         if (postOpt.isEmpty()) return ResponseEntity.notFound().build();
         Posts post = postOpt.get();
@@ -573,13 +916,11 @@ public class PostsCont {
         }
 
         String effectiveBlob = blobName != null ? blobName : post.getAzBlobName();
-        if (blobName != null) {
-            boolean allowedBlob = effectiveBlob.equals(post.getAzBlobName()) ||
-                    (post.getPreviewImages() != null && post.getPreviewImages().contains(effectiveBlob));
-            if (!allowedBlob) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Blob not allowed for this post");
-            }
+        if (blobName != null && !isPostBlob(post, effectiveBlob)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Blob not allowed for this post");
         }
+        // pomanjšana različica preview slike, dokler ni ustvarjena pa izvirnik
+        if (size != null) effectiveBlob = post.previewVariant(effectiveBlob, size).orElse(effectiveBlob);
 
         int requested = (minutes == null) ? defaultSasMinutes : minutes;
         int ttl = Math.max(minSasMinutes, Math.min(requested, maxSasMinutes));
@@ -589,7 +930,80 @@ public class PostsCont {
     }
 
     //to so neke pomožne metode
-    private Optional<Set<Tag>> parseTags(List<String> tags) {
+    //prodajalec ali kupec posta (prenos glavne datoteke)
+    private boolean isEntitled(Posts post, String userId) {
+        boolean isSeller = post.getSellerId() != null && post.getSellerId().equals(userId);
+        return isSeller || postsServ.isBuyer(post.getId(), userId);
+    }
+
+    //blobi, ki jih je poslal odjemalec: star blob brez vrstice v stored_blobs se zabeleži (storage), da ga
+    //PostsServ.claimBlobs lahko preveri; neobstoječ ostane brez vrstice in ga claimBlobs zavrne
+    private void recordUnknownBlobs(List<String> blobNames) {
+        for (String blobName : blobNames) {
+            if (blobName != null && !blobName.isBlank()) blobMetadataServ.get(blobName);
+        }
+    }
+
+    //blob je glavna datoteka, preview slika ali pomanjšana različica preview slike tega posta
+    private static boolean isPostBlob(Posts post, String blobName) {
+        if (blobName.equals(post.getAzBlobName())) return true;
+        if (post.getPreviewImages() != null && post.getPreviewImages().contains(blobName)) return true;
+        if (post.getPreviewVariants() == null) return false;
+        for (PreviewVariant v : post.getPreviewVariants()) {
+            if (blobName.equals(v.getBlobName())) return true;
+        }
+        return false;
+    }
+
+    //kopira s fiksnim medpomnilnikom; write blokira, dokler odjemalec ne sprejme podatkov, in šele nato se bere
+    //naprej iz storage-a, zato počasen odjemalec upočasni branje namesto da bi se podatki kopičili v pomnilniku
+    private static void copyRange(InputStream in, OutputStream out, long count) throws IOException {
+        byte[] buffer = new byte[DOWNLOAD_BUFFER_BYTES];
+        long remaining = count;
+        while (remaining > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (n < 0) throw new IOException("Blob ended " + remaining + " bytes early");
+            out.write(buffer, 0, n);
+            remaining -= n;
+        }
+        out.flush();
+    }
+
+    //preverjanje polj streaming uploada, preden se začne prenos datotek; vrne napako ali null
+    private String validatePostFields(Map<String, String> f) {
+        for (String name : List.of("title", "description", "priceUSD", "copies", "tags", "status")) {
+            if (f.get(name) == null) return "Missing field: " + name;
+        }
+        try {
+            Double.valueOf(f.get("priceUSD"));
+            Integer.valueOf(f.get("copies"));
+        } catch (NumberFormatException e) {
+            return "Invalid priceUSD or copies";
+        }
+        if (parseTags(splitTags(f.get("tags"))).isEmpty()) return "Invalid tag value";
+        try { Status.valueOf(f.get("status")); } catch (Exception e) { return "Invalid status"; }
+        return null;
+    }
+
+    private static List<String> splitTags(String tagsStr) {
+        return tagsStr != null && !tagsStr.isBlank()
+            ? java.util.Arrays.asList(tagsStr.split(","))
+            : new java.util.ArrayList<>();
+    }
+
+    private ResponseEntity<?> cursorPage(Optional<? extends PostsServ.CursorPage<?>> page) {
+        return page.<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.badRequest().body("Invalid cursor"));
+    }
+
+    // zaseden bulkhead (tudi zavit v drugo napako) ni napaka strežnika: BulkheadExceptionHandler vrne 503
+    private static void throwIfBulkheadFull(Exception e) {
+        Optional<BulkheadFullException> full = BulkheadFullException.findIn(e);
+        if (full.isPresent()) throw full.get();
+    }
+
+    // package-private zaradi benchmarka (src/jmh)
+    static Optional<Set<Tag>> parseTags(List<String> tags) {
         if (tags == null) return Optional.of(new java.util.HashSet<>());
         try {
             Set<Tag> parsed = tags.stream()
@@ -649,9 +1063,15 @@ public class PostsCont {
     public static class PostWithRating {
         public final Posts post;
         public final RatingSummary ratingSummary;
-        public PostWithRating(Posts post, RatingSummary ratingSummary) {
+        public final long buyerCount;
+        // ali je prijavljeni uporabnik kupil post (samo pri /posts/{id}, pri javnem odgovoru se izpusti)
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public final Boolean purchased;
+        public PostWithRating(Posts post, RatingSummary ratingSummary, long buyerCount, Boolean purchased) {
             this.post = post;
             this.ratingSummary = ratingSummary;
+            this.buyerCount = buyerCount;
+            this.purchased = purchased;
         }
     }
 }
@@ -0,0 +1,74 @@
+package com.slopeoasis.post.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slopeoasis.post.service.PostImportServ;
+import com.slopeoasis.post.service.PostImportServ.ImportResult;
+import com.slopeoasis.post.service.PostImportServ.ImportSummary;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+@RestController
+@RequestMapping("/posts")
+public class PostsImportCont {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final PostImportServ postImportServ;
+    private final ObjectMapper objectMapper;
+
+    public PostsImportCont(PostImportServ postImportServ, ObjectMapper objectMapper) {
+        this.postImportServ = postImportServ;
+        this.objectMapper = objectMapper;
+    }
+
+    //bulk uvoz postov prijavljenega prodajalca: NDJSON vhod (en post na vrstico, bloby so že naloženi),
+    //NDJSON odgovor z rezultatom za vsako vrstico sproti po kosih in zaključno vrstico {"summary": ...}
+    @Operation(summary = "Bulk import posts (NDJSON)")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Streamed per-line results"),
+        @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError")
+    })
+    @PostMapping(path = "/import", consumes = NDJSON, produces = NDJSON)
+    public void importPosts(HttpServletRequest request, HttpServletResponse response,
+                            @RequestAttribute(name = "X-User-Id", required = false) String userId) throws IOException {
+        if (userId == null) {
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        OutputStream out = response.getOutputStream();
+
+        ImportSummary summary = postImportServ.importNdjson(request.getInputStream(), userId, results -> {
+            try {
+                for (ImportResult r : results) writeLine(out, r);
+                out.flush();
+            } catch (IOException e) {
+                // odjemalec je prekinil povezavo - že zapisani kosi ostanejo, ostalo se ne uvozi
+                throw new UncheckedIOException(e);
+            }
+        });
+        writeLine(out, Map.of("summary", summary));
+        out.flush();
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+}
@@ -1,7 +1,10 @@
 package com.slopeoasis.post.controller;
 
+import java.util.List;
 import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Value;
+
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -19,9 +22,12 @@ import com.slopeoasis.post.service.PostsIntServ;
 @RequestMapping("/internal/posts")
 public class PostsInterCont {
      private final PostsIntServ postService;
+     private final int maxBatchGrants;
 
-    public PostsInterCont(PostsIntServ postService) {
+    public PostsInterCont(PostsIntServ postService,
+                          @Value("${internal.grant-access.max-batch:10000}") int maxBatchGrants) {
         this.postService = postService;
+        this.maxBatchGrants = maxBatchGrants;
     }
 
     public record GrantAccessRequest(
@@ -29,6 +35,26 @@ public class PostsInterCont {
             UUID paymentIntentId
     ) {}
 
+    public record BatchGrantAccessRequest(
+            List<PostsIntServ.Grant> grants
+    ) {}
+
+    @Operation(summary = "Grant access to many posts in one transaction (internal)")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Per-grant results (GRANTED, ALREADY_GRANTED, POST_NOT_FOUND, INVALID)"),
+        @ApiResponse(responseCode = "400", description = "Missing grants or too many grants")
+    })
+    @PostMapping("/grant-access/batch")
+    public ResponseEntity<?> grantAccessBatch(@RequestBody BatchGrantAccessRequest req) {
+        if (req == null || req.grants() == null || req.grants().isEmpty()) {
+            return ResponseEntity.badRequest().body("grants is required");
+        }
+        if (req.grants().size() > maxBatchGrants) {
+            return ResponseEntity.badRequest().body("Too many grants, max " + maxBatchGrants);
+        }
+        return ResponseEntity.ok(postService.addBuyers(req.grants()));
+    }
+
     @Operation(summary = "Grant access to post (internal)")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Access granted")
@@ -1,13 +1,18 @@
 package com.slopeoasis.post.entity;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
@@ -17,15 +22,28 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+    // keyset paginacija po (uploadTime, id)
+    @Index(name = "idx_posts_upload_time_id", columnList = "upload_time, id"),
+    @Index(name = "idx_posts_seller_upload_time_id", columnList = "seller_id, upload_time, id"),
+    @Index(name = "idx_posts_az_blob_name", columnList = "az_blob_name")
+})
 public class Posts {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ID-ji iz sekvence v blokih po 50 (pooled), da Hibernate lahko batcha inserte (IDENTITY to onemogoči).
+    // Pri starih bazah je to sekvenca identity stolpca, korak ji nastavi SchemaInitializer.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posts_id_seq")
+    @SequenceGenerator(name = "posts_id_seq", sequenceName = "posts_id_seq", allocationSize = 50)
     private Integer id;
 
     // Basic info
@@ -39,14 +57,23 @@ public class Posts {
     private String description;
 
     // Tags
+    // @BatchSize: pri seznamih se tagi vseh postov na strani naložijo z enim queryjem namesto enega na post
+    @BatchSize(size = 50)
     @ElementCollection
-    @CollectionTable(name = "post_tags", joinColumns = @JoinColumn(name = "post_id"))
+    @CollectionTable(name = "post_tags", joinColumns = @JoinColumn(name = "post_id"),
+            indexes = @Index(name = "idx_post_tags_tag", columnList = "tag, post_id"))
     @Column(name = "tag", nullable = false)
     @Enumerated(EnumType.STRING)
     private Set<Tag> tags = new HashSet<>();
 
-    // Main file stored in Azure Blob Storage
-    @Column(nullable = false, unique = true)
+    // Denormaliziran bitmask tagov (bit = Tag.ordinal), za filtriranje po tagih brez joina na post_tags.
+    // Nastavi ga setTags in pred vsakim insert/update še syncTagMask; stare vrstice napolni SchemaInitializer.
+    @JsonIgnore
+    @Column(name = "tag_mask", nullable = false, columnDefinition = "integer not null default 0")
+    private int tagMask;
+
+    // Main file stored in Azure Blob Storage; več postov istega prodajalca si lahko deli blob z enako vsebino (BlobUploadPipeline)
+    @Column(nullable = false)
     private String azBlobName;
 
     // Version of the uploaded file (increments when seller replaces the file)
@@ -54,17 +81,37 @@ public class Posts {
     private Integer fileVersion = 1;
 
     // Preview images
+    @BatchSize(size = 50)
     @ElementCollection
-    @CollectionTable(name = "post_preview_images", joinColumns = @JoinColumn(name = "post_id"))
+    @CollectionTable(name = "post_preview_images", joinColumns = @JoinColumn(name = "post_id"),
+            indexes = @Index(name = "idx_post_preview_images_blob", columnList = "preview_blob_name"))
     @Column(name = "preview_blob_name")
     private List<String> previewImages;
 
+    // Pomanjšane različice preview slik (PreviewThumbnailServ), dodajo se v ozadju po uploadu
+    @BatchSize(size = 50)
+    @ElementCollection
+    @CollectionTable(name = "post_preview_variants", joinColumns = @JoinColumn(name = "post_id"),
+            indexes = @Index(name = "idx_post_preview_variants_blob", columnList = "variant_blob_name"))
+    private Set<PreviewVariant> previewVariants = new HashSet<>();
+
     // Buyers (Clerk IDs or your user IDs)
+    // Ne serializira se v odgovore (lahko jih je na desettisoče) - za preverjanje dostopa glej PostsRepo.existsBuyer
+    @JsonIgnore
     @ElementCollection
-    @CollectionTable(name = "post_buyers", joinColumns = @JoinColumn(name = "post_id"))
+    @CollectionTable(name = "post_buyers", joinColumns = @JoinColumn(name = "post_id"),
+            uniqueConstraints = @UniqueConstraint(name = "uk_post_buyers_post_buyer", columnNames = {"post_id", "buyer_id"}),
+            indexes = @Index(name = "idx_post_buyers_buyer", columnList = "buyer_id"))
     @Column(name = "buyer_id")
     private Set<String> buyers;
 
+    // Število kupcev za odgovor GET /posts/{id} brez COUNT(*) nad post_buyers. Spreminja ga samo
+    // PostsRepo.addBuyerCount v transakciji, ki vstavi kupca (save entitete ga ne prepiše); stare vrstice napolni SchemaInitializer.
+    @JsonIgnore
+    @Column(name = "buyer_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long buyerCount;
+
     // Copies: -1 means unlimited
     @Column(nullable = false)
     private Integer copies;
@@ -106,7 +153,17 @@ public class Posts {
     public void setDescription(String description) { this.description = description; }
 
     public Set<Tag> getTags() { return tags; }
-    public void setTags(Set<Tag> tags) { this.tags = tags; }
+    public void setTags(Set<Tag> tags) {
+        this.tags = tags;
+        this.tagMask = Tag.mask(tags);
+    }
+
+    public int getTagMask() { return tagMask; }
+
+    //za primer, da kdo spremeni kar vrnjen getTags() set
+    @PrePersist
+    @PreUpdate
+    void syncTagMask() { this.tagMask = Tag.mask(tags); }
 
     public String getAzBlobName() { return azBlobName; }
     public void setAzBlobName(String azBlobName) { this.azBlobName = azBlobName; }
@@ -117,9 +174,24 @@ public class Posts {
     public List<String> getPreviewImages() { return previewImages; }
     public void setPreviewImages(List<String> previewImages) { this.previewImages = previewImages; }
 
+    public Set<PreviewVariant> getPreviewVariants() { return previewVariants; }
+    public void setPreviewVariants(Set<PreviewVariant> previewVariants) { this.previewVariants = previewVariants; }
+
+    //blob različice preview slike v danem razredu velikosti; empty, ko še ni ustvarjena
+    public Optional<String> previewVariant(String previewBlobName, PreviewSize size) {
+        if (previewVariants == null || previewBlobName == null || size == null) return Optional.empty();
+        for (PreviewVariant v : previewVariants) {
+            if (v.getSize() == size && previewBlobName.equals(v.getPreviewBlobName())) return Optional.of(v.getBlobName());
+        }
+        return Optional.empty();
+    }
+
     public Set<String> getBuyers() { return buyers; }
     public void setBuyers(Set<String> buyers) { this.buyers = buyers; }
 
+    public long getBuyerCount() { return buyerCount; }
+    public void setBuyerCount(long buyerCount) { this.buyerCount = buyerCount; }
+
     public Integer getCopies() { return copies; }
     public void setCopies(Integer copies) { this.copies = copies; }
 
@@ -136,7 +208,20 @@ public class Posts {
     public void setStatus(Status status) { this.status = status; }
     
 
-    //tag list
+    //razredi velikosti pomanjšanih preview slik: najdaljša stranica v pikslih
+    public enum PreviewSize {
+        SMALL(200),
+        MEDIUM(480),
+        LARGE(1024);
+
+        private final int maxEdge;
+
+        PreviewSize(int maxEdge) { this.maxEdge = maxEdge; }
+
+        public int maxEdge() { return maxEdge; }
+    }
+
+    //tag list; ordinal je bit v tag_mask, zato nove tage dodajaj samo na konec (največ MAX_TAGS)
     public enum Tag {
         ART,
         MUSIC,
@@ -146,7 +231,27 @@ public class Posts {
         PHOTO,
         MODEL_3D,
         FONT,
-        OTHER
+        OTHER;
+
+        // TagFilter pošlje v SQL seznam vseh ustreznih mask (do 2^n), zato mora biti tagov malo
+        public static final int MAX_TAGS = 12;
+
+        static {
+            // enum se naloži ob zagonu (Hibernate metamodel), zato preveč tagov ustavi zagon
+            if (values().length > MAX_TAGS) {
+                throw new IllegalStateException("At most " + MAX_TAGS + " tags fit the tag_mask filter, got " + values().length);
+            }
+        }
+
+        public int bit() { return 1 << ordinal(); }
+
+        public static int mask(Collection<Tag> tags) {
+            int mask = 0;
+            if (tags != null) {
+                for (Tag t : tags) if (t != null) mask |= t.bit();
+            }
+            return mask;
+        }
     }
 }
 
@@ -0,0 +1,68 @@
+package com.slopeoasis.post.entity;
+
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+// Čakalna vrsta za izdelavo pomanjšanih preview slik (PreviewThumbnailServ). Vrstica nastane v isti transakciji
+// kot post oz. nove preview slike in se izbriše, ko so različice zapisane ali ko obdelava dokončno ne uspe.
+// Prevzem premakne next_attempt_at naprej (zakup), zato posel, ki ga replika ne dokonča, kasneje prevzame druga.
+@Entity
+@Table(name = "preview_jobs",
+        uniqueConstraints = @UniqueConstraint(name = "uk_preview_jobs_post_blob", columnNames = {"post_id", "source_blob_name"}),
+        indexes = @Index(name = "idx_preview_jobs_next_attempt", columnList = "next_attempt_at"))
+public class PreviewJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "post_id", nullable = false)
+    private Integer postId;
+
+    @Column(name = "source_blob_name", nullable = false)
+    private String sourceBlobName;
+
+    // število prevzemov (vključno s trenutnim)
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, columnDefinition = "timestamp(6) with time zone not null default now()")
+    private OffsetDateTime createdAt;
+
+    public PreviewJob() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Integer getPostId() { return postId; }
+    public void setPostId(Integer postId) { this.postId = postId; }
+
+    public String getSourceBlobName() { return sourceBlobName; }
+    public void setSourceBlobName(String sourceBlobName) { this.sourceBlobName = sourceBlobName; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public OffsetDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(OffsetDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,69 @@
+package com.slopeoasis.post.entity;
+
+import java.util.Objects;
+
+import com.slopeoasis.post.entity.Posts.PreviewSize;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+
+// Pomanjšana različica preview slike posta (post_preview_variants). Ko je izvirnik že manjši od razreda,
+// blobName kaže kar na izvirnik, tako da ima vsaka obdelana preview slika vse razrede.
+@Embeddable
+public class PreviewVariant {
+
+    @Column(name = "preview_blob_name", nullable = false)
+    private String previewBlobName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "size_class", nullable = false)
+    private PreviewSize size;
+
+    @Column(name = "variant_blob_name", nullable = false)
+    private String blobName;
+
+    @Column(name = "width", nullable = false)
+    private int width;
+
+    @Column(name = "height", nullable = false)
+    private int height;
+
+    public PreviewVariant() {}
+
+    public PreviewVariant(String previewBlobName, PreviewSize size, String blobName, int width, int height) {
+        this.previewBlobName = previewBlobName;
+        this.size = size;
+        this.blobName = blobName;
+        this.width = width;
+        this.height = height;
+    }
+
+    public String getPreviewBlobName() { return previewBlobName; }
+    public void setPreviewBlobName(String previewBlobName) { this.previewBlobName = previewBlobName; }
+
+    public PreviewSize getSize() { return size; }
+    public void setSize(PreviewSize size) { this.size = size; }
+
+    public String getBlobName() { return blobName; }
+    public void setBlobName(String blobName) { this.blobName = blobName; }
+
+    public int getWidth() { return width; }
+    public void setWidth(int width) { this.width = width; }
+
+    public int getHeight() { return height; }
+    public void setHeight(int height) { this.height = height; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PreviewVariant v)) return false;
+        return Objects.equals(previewBlobName, v.previewBlobName) && size == v.size;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(previewBlobName, size);
+    }
+}
@@ -9,6 +9,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 
@@ -19,7 +20,10 @@ import jakarta.persistence.UniqueConstraint;
 public class Rating {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ID-ji iz sekvence v blokih po 50 (pooled), da Hibernate lahko batcha inserte (IDENTITY to onemogoči).
+    // Pri starih bazah je to sekvenca identity stolpca, korak ji nastavi SchemaInitializer.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ratings_id_seq")
+    @SequenceGenerator(name = "ratings_id_seq", sequenceName = "ratings_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "post_id", nullable = false)
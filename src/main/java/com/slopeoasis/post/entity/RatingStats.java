@@ -0,0 +1,89 @@
+package com.slopeoasis.post.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// Sprotno vzdrževani agregati ocen za post (vsota, število, histogram 1-5).
+// Posodablja jih PostsServ.submitRating v isti transakciji kot oceno, zato je branje povzetka en PK lookup.
+@Entity
+@Table(name = "post_rating_stats")
+public class RatingStats {
+
+    @Id
+    @Column(name = "post_id")
+    private Integer postId;
+
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+
+    @Column(name = "rating_count", nullable = false)
+    private long ratingCount;
+
+    @Column(name = "star1", nullable = false)
+    private long star1;
+
+    @Column(name = "star2", nullable = false)
+    private long star2;
+
+    @Column(name = "star3", nullable = false)
+    private long star3;
+
+    @Column(name = "star4", nullable = false)
+    private long star4;
+
+    @Column(name = "star5", nullable = false)
+    private long star5;
+
+    // poveča se ob vsaki spremembi agregatov
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    // čas zadnje spremembe agregatov (za Last-Modified), nastavi ga baza ob seedu in applyDelta
+    @Column(name = "updated_at", nullable = false, columnDefinition = "timestamp(6) not null default now()")
+    private LocalDateTime updatedAt;
+
+    public RatingStats() {}
+
+    public Integer getPostId() { return postId; }
+    public void setPostId(Integer postId) { this.postId = postId; }
+
+    public long getRatingSum() { return ratingSum; }
+    public void setRatingSum(long ratingSum) { this.ratingSum = ratingSum; }
+
+    public long getRatingCount() { return ratingCount; }
+    public void setRatingCount(long ratingCount) { this.ratingCount = ratingCount; }
+
+    public long getStar1() { return star1; }
+    public void setStar1(long star1) { this.star1 = star1; }
+
+    public long getStar2() { return star2; }
+    public void setStar2(long star2) { this.star2 = star2; }
+
+    public long getStar3() { return star3; }
+    public void setStar3(long star3) { this.star3 = star3; }
+
+    public long getStar4() { return star4; }
+    public void setStar4(long star4) { this.star4 = star4; }
+
+    public long getStar5() { return star5; }
+    public void setStar5(long star5) { this.star5 = star5; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    // histogram[0] = število ocen 1, ... histogram[4] = število ocen 5
+    public long[] getHistogram() {
+        return new long[] { star1, star2, star3, star4, star5 };
+    }
+
+    public double getAverage() {
+        return ratingCount == 0 ? 0.0 : (double) ratingSum / ratingCount;
+    }
+}
@@ -0,0 +1,88 @@
+package com.slopeoasis.post.entity;
+
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+// Metapodatki bloba v storage (glavna datoteka ali preview slika), zajeti ob uploadu.
+// Blobi se po uploadu ne spreminjajo (ime je UUID), zato je vrstica nespremenljiva; stare vrstice
+// (blobi izpred uvedbe tabele) dopolni BlobMetadataReconciler, takrat je sha256 null.
+// Vrstica z ownerId in sha256 je tudi vnos v indeksu vsebine: nov upload iste vsebine istega prodajalca
+// uporabi obstoječ blob in poveča refCount, blob se izbriše šele, ko refCount pade na 0.
+@Entity
+@Table(name = "stored_blobs", indexes = {
+    @Index(name = "idx_stored_blobs_content", columnList = "owner_id, sha256, size_bytes")
+})
+public class StoredBlob {
+
+    @Id
+    @Column(name = "blob_name")
+    private String blobName;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    // hex SHA-256 vsebine, izračunan med uploadom
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "created_at")
+    private OffsetDateTime createdAt;
+
+    @Column(name = "last_modified")
+    private OffsetDateTime lastModified;
+
+    // prodajalec, ki je blob naložil; null za blobe brez lastnika (backfill, pomanjšane preview slike) - ti se ne delijo
+    @Column(name = "owner_id")
+    private String ownerId;
+
+    // število referenc (postov oz. uploadov v teku), ki blob uporabljajo
+    @Column(name = "ref_count", nullable = false, columnDefinition = "integer not null default 1")
+    private int refCount = 1;
+
+    // kdaj je vrstica nastala (upload ali backfill)
+    @Column(name = "recorded_at", nullable = false, columnDefinition = "timestamp(6) with time zone not null default now()")
+    private OffsetDateTime recordedAt;
+
+    public StoredBlob() {}
+
+    public String getBlobName() { return blobName; }
+    public void setBlobName(String blobName) { this.blobName = blobName; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(long sizeBytes) { this.sizeBytes = sizeBytes; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public String getEtag() { return etag; }
+    public void setEtag(String etag) { this.etag = etag; }
+
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+
+    public OffsetDateTime getLastModified() { return lastModified; }
+    public void setLastModified(OffsetDateTime lastModified) { this.lastModified = lastModified; }
+
+    public String getOwnerId() { return ownerId; }
+    public void setOwnerId(String ownerId) { this.ownerId = ownerId; }
+
+    public int getRefCount() { return refCount; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+
+    public OffsetDateTime getRecordedAt() { return recordedAt; }
+    public void setRecordedAt(OffsetDateTime recordedAt) { this.recordedAt = recordedAt; }
+}
@@ -1,15 +1,18 @@
 package com.slopeoasis.post.repository;
 
 //glavno
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.slopeoasis.post.entity.Posts;
-import com.slopeoasis.post.entity.Posts.Tag;
 
 public interface PostsRepo extends JpaRepository<Posts, Integer> {
     //Pageable za paginacijo rezultatov, ala limit, offset, sort
@@ -22,23 +25,24 @@ public interface PostsRepo extends JpaRepository<Posts, Integer> {
     @Query("SELECT p FROM Posts p WHERE :buyerId MEMBER OF p.buyers")
     List<Posts> findBoughtPostsByBuyer(@Param("buyerId") String buyerId, Pageable pageable);
     
-    //javni prikaz (homepage, filtriranje, iskanje)
-    @Query("SELECT p FROM Posts p WHERE :tag MEMBER OF p.tags AND p.status = com.slopeoasis.post.entity.Posts.Status.ACTIVE")
-    List<Posts> findByTagAndStatusActive(@Param("tag") Tag tag, Pageable pageable);
-    
-    //javni prikaz po tagu brez pagingiranja
-    @Query("SELECT p FROM Posts p WHERE :tag MEMBER OF p.tags AND p.status = com.slopeoasis.post.entity.Posts.Status.ACTIVE")
-    List<Posts> findByTagAndStatusActive(@Param("tag") Tag tag);
     
     //za naključni feed in priporočila
     List<Posts> findByStatus(Posts.Status status, Pageable pageable);
     
-    //za homepage z več tagi filtriranje glede na interese uporabnika
-    @Query("SELECT p FROM Posts p WHERE p.status = com.slopeoasis.post.entity.Posts.Status.ACTIVE AND " +
-           "((:tag1 IS NULL OR :tag1 MEMBER OF p.tags) OR " +
-           "(:tag2 IS NULL OR :tag2 MEMBER OF p.tags) OR " +
-           "(:tag3 IS NULL OR :tag3 MEMBER OF p.tags))")
-    List<Posts> findByMultipleTagsActive(@Param("tag1") Tag tag1, @Param("tag2") Tag tag2, @Param("tag3") Tag tag3, Pageable pageable);
+    //filtriranje po tagih (homepage, teme, /posts/tags) nad denormaliziranim tag_mask, brez joina na post_tags;
+    //:masks so vse maske, ki ustrezajo filtru (TagFilter.matchingMasks). Delna indeksa za ACTIVE (SchemaInitializer):
+    //(upload_time, id) za široke filtre (bere v vrstnem redu strani do LIMIT), (tag_mask, upload_time, id) za ozke
+    String TAG_FILTER = "p.status = 'ACTIVE' AND p.tag_mask = ANY(CAST(:masks AS int[]))";
+
+    @Query(value = "SELECT p.* FROM posts p WHERE " + TAG_FILTER + " ORDER BY p.upload_time DESC, p.id DESC",
+           nativeQuery = true)
+    List<Posts> findByTagMaskActive(@Param("masks") Integer[] masks, Pageable pageable);
+
+    @Query(value = "SELECT p.* FROM posts p WHERE " + TAG_FILTER +
+                   " AND p.upload_time <= :time AND (p.upload_time < :time OR p.id < :id)" +
+                   " ORDER BY p.upload_time DESC, p.id DESC", nativeQuery = true)
+    List<Posts> findByTagMaskActiveAfter(@Param("masks") Integer[] masks, @Param("time") LocalDateTime time,
+                                         @Param("id") Integer id, Pageable pageable);
 
     // Search by title (ACTIVE only)
     @Query("SELECT p FROM Posts p WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :title, '%')) AND p.status = :status")
@@ -48,6 +52,36 @@ public interface PostsRepo extends JpaRepository<Posts, Integer> {
     @Query("SELECT p FROM Posts p WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :title, '%'))")
     List<Posts> findByTitleContainingIgnoreCase(@Param("title") String title, Pageable pageable);
 
+    //rangirano iskanje po naslovu preko pg_trgm GIN indeksa na lower(title); :q in :pattern morata biti že lowercase,
+    //:pattern ima escapane % in _ . Vrstni red: točno ujemanje, predpona, trigram podobnost, nato najnovejši
+    String TITLE_RANK = " ORDER BY (lower(p.title) = :q) DESC, (lower(p.title) LIKE :pattern || '%') DESC," +
+                        " similarity(lower(p.title), :q) DESC, p.upload_time DESC, p.id DESC";
+
+    @Query(value = "SELECT p.* FROM posts p WHERE lower(p.title) LIKE '%' || :pattern || '%' AND p.status = 'ACTIVE'" + TITLE_RANK,
+           nativeQuery = true)
+    List<Posts> searchTitleRankedActive(@Param("q") String q, @Param("pattern") String pattern, Pageable pageable);
+
+    @Query(value = "SELECT p.* FROM posts p WHERE lower(p.title) LIKE '%' || :pattern || '%'" + TITLE_RANK,
+           nativeQuery = true)
+    List<Posts> searchTitleRanked(@Param("q") String q, @Param("pattern") String pattern, Pageable pageable);
+
+    //full-text iskanje po naslovu (utež A) in opisu (B) nad stolpcem search_vector, ki ga vzdržuje trigger posts_search_vector_trg (GIN, SchemaInitializer),
+    //samo ACTIVE; :q je že sestavljen tsquery (PostSearchServ.toTsQuery). Keyset po (rank, id); ts_headline je drag,
+    //zato se izračuna šele za vrstice strani (zunanji SELECT po LIMIT)
+    @Query(value = "SELECT h.id AS \"id\", h.rank AS \"rank\", " +
+                   "ts_headline('simple', h.title, h.q, :titleOptions) AS \"titleHighlight\", " +
+                   "ts_headline('simple', h.description, h.q, :snippetOptions) AS \"snippet\" " +
+                   "FROM (SELECT s.* FROM (" +
+                   "  SELECT p.id, p.title, p.description, q, ts_rank('{0.1, 0.2, 0.4, 1.0}', p.search_vector, q) AS rank " +
+                   "  FROM posts p, to_tsquery('simple', :q) q " +
+                   "  WHERE p.status = 'ACTIVE' AND p.search_vector @@ q) s " +
+                   " WHERE s.rank < :rank OR (s.rank = :rank AND s.id < :id) " +
+                   " ORDER BY s.rank DESC, s.id DESC LIMIT :limit) h " +
+                   "ORDER BY h.rank DESC, h.id DESC", nativeQuery = true)
+    List<SearchRow> searchFullText(@Param("q") String tsQuery, @Param("rank") float rank, @Param("id") Integer id,
+                                   @Param("limit") int limit, @Param("titleOptions") String titleOptions,
+                                   @Param("snippetOptions") String snippetOptions);
+
     // Search by stored file/blob name (ACTIVE only)
     @Query("SELECT p FROM Posts p WHERE LOWER(p.azBlobName) LIKE LOWER(CONCAT('%', :blobName, '%')) AND p.status = :status")
     List<Posts> findByAzBlobNameContainingIgnoreCaseAndStatus(@Param("blobName") String azBlobName, @Param("status") Posts.Status status, Pageable pageable);
@@ -55,4 +89,84 @@ public interface PostsRepo extends JpaRepository<Posts, Integer> {
     // Search by stored file/blob name (any status) for Azure fetches
     @Query("SELECT p FROM Posts p WHERE LOWER(p.azBlobName) LIKE LOWER(CONCAT('%', :blobName, '%'))")
     List<Posts> findByAzBlobNameContainingIgnoreCase(@Param("blobName") String azBlobName, Pageable pageable);
-}
\ No newline at end of file
+
+    //keyset (cursor) paginacija: urejeno po (uploadTime DESC, id DESC), naslednja stran se začne za (:time, :id)
+    //pogoj "uploadTime <= :time" je tam zato, da Postgres lahko uporabi indeks (upload_time, id) kot mejo
+    String SEEK = " AND p.uploadTime <= :time AND (p.uploadTime < :time OR p.id < :id)" +
+                  " ORDER BY p.uploadTime DESC, p.id DESC";
+
+    @Query("SELECT p FROM Posts p WHERE p.sellerId = :sellerId AND p.status != com.slopeoasis.post.entity.Posts.Status.USER_DELETED" + SEEK)
+    List<Posts> findBySellerIdExcludingUserDeletedAfter(@Param("sellerId") String sellerId, @Param("time") LocalDateTime time, @Param("id") Integer id, Pageable pageable);
+
+    @Query("SELECT p FROM Posts p WHERE :buyerId MEMBER OF p.buyers" + SEEK)
+    List<Posts> findBoughtPostsByBuyerAfter(@Param("buyerId") String buyerId, @Param("time") LocalDateTime time, @Param("id") Integer id, Pageable pageable);
+
+    @Query("SELECT p FROM Posts p WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :title, '%')) AND p.status = :status" + SEEK)
+    List<Posts> findByTitleContainingIgnoreCaseAndStatusAfter(@Param("title") String title, @Param("status") Posts.Status status, @Param("time") LocalDateTime time, @Param("id") Integer id, Pageable pageable);
+
+    @Query("SELECT p FROM Posts p WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :title, '%'))" + SEEK)
+    List<Posts> findByTitleContainingIgnoreCaseAfter(@Param("title") String title, @Param("time") LocalDateTime time, @Param("id") Integer id, Pageable pageable);
+
+    @Query("SELECT p FROM Posts p WHERE LOWER(p.azBlobName) LIKE LOWER(CONCAT('%', :blobName, '%')) AND p.status = :status" + SEEK)
+    List<Posts> findByAzBlobNameContainingIgnoreCaseAndStatusAfter(@Param("blobName") String azBlobName, @Param("status") Posts.Status status, @Param("time") LocalDateTime time, @Param("id") Integer id, Pageable pageable);
+
+    @Query("SELECT p FROM Posts p WHERE LOWER(p.azBlobName) LIKE LOWER(CONCAT('%', :blobName, '%'))" + SEEK)
+    List<Posts> findByAzBlobNameContainingIgnoreCaseAfter(@Param("blobName") String azBlobName, @Param("time") LocalDateTime time, @Param("id") Integer id, Pageable pageable);
+
+    //preverjanje dostopa brez nalaganja celotne post_buyers kolekcije (indeks uk_post_buyers_post_buyer)
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM post_buyers WHERE post_id = :postId AND buyer_id = :buyerId)", nativeQuery = true)
+    boolean existsBuyer(@Param("postId") Integer postId, @Param("buyerId") String buyerId);
+
+    //ali ima post še to preview sliko (PreviewThumbnailServ pred obdelavo, indeks idx_post_preview_images_blob)
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM post_preview_images WHERE post_id = :postId AND preview_blob_name = :blobName)", nativeQuery = true)
+    boolean existsPreviewImage(@Param("postId") Integer postId, @Param("blobName") String blobName);
+
+    //vrne 1 če je kupec dodan, 0 če je že obstajal
+    @Modifying
+    @Query(value = "INSERT INTO post_buyers (post_id, buyer_id) VALUES (:postId, :buyerId) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertBuyerIfAbsent(@Param("postId") Integer postId, @Param("buyerId") String buyerId);
+
+    //kateri od podanih id-jev obstajajo (za batch grant-access, en query namesto findById na element)
+    @Query("SELECT p.id FROM Posts p WHERE p.id IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    //nakup omejene kopije: en pogojni UPDATE brez nalaganja entitete, vrne 1 če je bila kopija na voljo
+    @Modifying
+    @Query(value = "UPDATE posts SET copies = copies - 1, last_time_modified = now() " +
+                   "WHERE id = :postId AND copies > 0 AND status <> 'USER_DELETED'", nativeQuery = true)
+    int decrementCopies(@Param("postId") Integer postId);
+
+    //novi kupci (v isti transakciji kot insert v post_buyers): buyer_count in nov Last-Modified/ETag, ker je buyerCount v odgovoru
+    @Modifying
+    @Query(value = "UPDATE posts SET buyer_count = buyer_count + :added, last_time_modified = now() WHERE id = :postId", nativeQuery = true)
+    int addBuyerCount(@Param("postId") Integer postId, @Param("added") int added);
+
+    //validatorji za pogojni GET posta (en query brez nalaganja entitete, tagov in ocen)
+    @Query(value = "SELECT p.last_time_modified AS \"lastModified\", p.file_version AS \"fileVersion\", " +
+                   "s.version AS \"ratingVersion\", s.updated_at AS \"ratingsModified\" " +
+                   "FROM posts p LEFT JOIN post_rating_stats s ON s.post_id = p.id WHERE p.id = :postId", nativeQuery = true)
+    Optional<Version> findVersion(@Param("postId") Integer postId);
+
+    //zaloga in status za razlago, zakaj decrementCopies ni uspel (neomejeno, razprodano, izbrisano)
+    @Query("SELECT p.copies AS copies, p.status AS status FROM Posts p WHERE p.id = :postId")
+    Optional<Stock> findStock(@Param("postId") Integer postId);
+
+    interface Stock {
+        Integer getCopies();
+        Posts.Status getStatus();
+    }
+
+    interface Version {
+        LocalDateTime getLastModified();
+        Integer getFileVersion();
+        Long getRatingVersion();
+        LocalDateTime getRatingsModified();
+    }
+
+    interface SearchRow {
+        Integer getId();
+        Float getRank();
+        String getTitleHighlight();
+        String getSnippet();
+    }
+}
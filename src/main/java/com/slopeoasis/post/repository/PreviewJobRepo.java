@@ -0,0 +1,58 @@
+package com.slopeoasis.post.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.slopeoasis.post.entity.PreviewJob;
+
+public interface PreviewJobRepo extends JpaRepository<PreviewJob, Long> {
+
+    //posel za vsako preview sliko postov, ki še nima različic; obstoječ posel ostane.
+    //kliče se v transakciji, ki shrani post, zato posel nastane natanko takrat, ko post
+    @Modifying
+    @Query(value = "INSERT INTO preview_jobs (post_id, source_blob_name, attempts, next_attempt_at, created_at) " +
+                   "SELECT DISTINCT i.post_id, i.preview_blob_name, 0, now(), now() FROM post_preview_images i " +
+                   "WHERE i.post_id IN (:postIds) AND i.preview_blob_name IS NOT NULL " +
+                   "AND NOT EXISTS (SELECT 1 FROM post_preview_variants v " +
+                   "WHERE v.post_id = i.post_id AND v.preview_blob_name = i.preview_blob_name) " +
+                   "ON CONFLICT (post_id, source_blob_name) DO NOTHING", nativeQuery = true)
+    int enqueueForPosts(@Param("postIds") Collection<Integer> postIds);
+
+    //id-ji postov, ki imajo preview sliko brez različic, od :after naprej (keyset, za enkratno dopolnjevanje vrste)
+    @Query(value = "SELECT DISTINCT i.post_id FROM post_preview_images i " +
+                   "WHERE i.post_id > :after AND i.preview_blob_name IS NOT NULL " +
+                   "AND NOT EXISTS (SELECT 1 FROM post_preview_variants v " +
+                   "WHERE v.post_id = i.post_id AND v.preview_blob_name = i.preview_blob_name) " +
+                   "ORDER BY i.post_id LIMIT :limit", nativeQuery = true)
+    List<Integer> findPostIdsWithoutVariants(@Param("after") int after, @Param("limit") int limit);
+
+    //prevzame do :limit zapadlih poslov: poveča attempts in jih zakupi za :leaseSeconds.
+    //SKIP LOCKED: replike si istega posla ne prevzamejo, ena drugo pa ne čakajo
+    @Transactional
+    @Query(value = "UPDATE preview_jobs SET attempts = attempts + 1, " +
+                   "next_attempt_at = now() + make_interval(secs => :leaseSeconds) " +
+                   "WHERE id IN (SELECT id FROM preview_jobs WHERE next_attempt_at <= now() " +
+                   "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                   "RETURNING *", nativeQuery = true)
+    List<PreviewJob> claimDue(@Param("limit") int limit, @Param("leaseSeconds") long leaseSeconds);
+
+    //neuspel poskus: naslednji čez :delaySeconds
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE preview_jobs SET next_attempt_at = now() + make_interval(secs => :delaySeconds), " +
+                   "last_error = :error WHERE id = :id", nativeQuery = true)
+    int reschedule(@Param("id") Long id, @Param("delaySeconds") long delaySeconds, @Param("error") String error);
+
+    //posli za preview slike, ki jih post nima več (urejanje posta)
+    @Modifying
+    @Query(value = "DELETE FROM preview_jobs j WHERE j.post_id = :postId " +
+                   "AND NOT EXISTS (SELECT 1 FROM post_preview_images i " +
+                   "WHERE i.post_id = j.post_id AND i.preview_blob_name = j.source_blob_name)", nativeQuery = true)
+    int deleteStale(@Param("postId") Integer postId);
+}
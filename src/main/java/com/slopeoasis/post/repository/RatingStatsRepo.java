@@ -0,0 +1,50 @@
+package com.slopeoasis.post.repository;
+
+import java.util.Collection;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.slopeoasis.post.entity.RatingStats;
+
+public interface RatingStatsRepo extends JpaRepository<RatingStats, Integer> {
+
+    //ustvari vrstico agregatov iz obstoječih ocen, če še ne obstaja (za poste z ocenami izpred uvedbe agregatov);
+    //za neobstoječ post ne vstavi ničesar
+    @Modifying
+    @Query(value = "INSERT INTO post_rating_stats (post_id, rating_sum, rating_count, star1, star2, star3, star4, star5, version, updated_at) " +
+                   "SELECT :postId, COALESCE(SUM(r.rating), 0), COUNT(*), " +
+                   "COUNT(*) FILTER (WHERE r.rating = 1), COUNT(*) FILTER (WHERE r.rating = 2), COUNT(*) FILTER (WHERE r.rating = 3), " +
+                   "COUNT(*) FILTER (WHERE r.rating = 4), COUNT(*) FILTER (WHERE r.rating = 5), 0, now() " +
+                   "FROM ratings r WHERE r.post_id = :postId " +
+                   "HAVING EXISTS (SELECT 1 FROM posts p WHERE p.id = :postId) " +
+                   "ON CONFLICT (post_id) DO NOTHING", nativeQuery = true)
+    int seedFromRatings(@Param("postId") Integer postId);
+
+    //isto kot seedFromRatings za več postov hkrati (seznami); tudi posti brez ocen dobijo (prazno) vrstico
+    @Modifying
+    @Query(value = "INSERT INTO post_rating_stats (post_id, rating_sum, rating_count, star1, star2, star3, star4, star5, version, updated_at) " +
+                   "SELECT p.id, COALESCE(SUM(r.rating), 0), COUNT(r.rating), " +
+                   "COUNT(*) FILTER (WHERE r.rating = 1), COUNT(*) FILTER (WHERE r.rating = 2), COUNT(*) FILTER (WHERE r.rating = 3), " +
+                   "COUNT(*) FILTER (WHERE r.rating = 4), COUNT(*) FILTER (WHERE r.rating = 5), 0, now() " +
+                   "FROM posts p LEFT JOIN ratings r ON r.post_id = p.id WHERE p.id IN (:postIds) " +
+                   "GROUP BY p.id " +
+                   "ON CONFLICT (post_id) DO NOTHING", nativeQuery = true)
+    int seedFromRatings(@Param("postIds") Collection<Integer> postIds);
+
+    //atomarno prišteje spremembo: nova ocena (removed = 0) ali sprememba obstoječe (removed = stara vrednost, countDelta = 0)
+    @Modifying
+    @Query(value = "UPDATE post_rating_stats SET " +
+                   "rating_sum = rating_sum + :added - :removed, " +
+                   "rating_count = rating_count + :countDelta, " +
+                   "star1 = star1 + (CASE WHEN :added = 1 THEN 1 ELSE 0 END) - (CASE WHEN :removed = 1 THEN 1 ELSE 0 END), " +
+                   "star2 = star2 + (CASE WHEN :added = 2 THEN 1 ELSE 0 END) - (CASE WHEN :removed = 2 THEN 1 ELSE 0 END), " +
+                   "star3 = star3 + (CASE WHEN :added = 3 THEN 1 ELSE 0 END) - (CASE WHEN :removed = 3 THEN 1 ELSE 0 END), " +
+                   "star4 = star4 + (CASE WHEN :added = 4 THEN 1 ELSE 0 END) - (CASE WHEN :removed = 4 THEN 1 ELSE 0 END), " +
+                   "star5 = star5 + (CASE WHEN :added = 5 THEN 1 ELSE 0 END) - (CASE WHEN :removed = 5 THEN 1 ELSE 0 END), " +
+                   "version = version + 1, updated_at = now() " +
+                   "WHERE post_id = :postId", nativeQuery = true)
+    int applyDelta(@Param("postId") Integer postId, @Param("added") int added, @Param("removed") int removed, @Param("countDelta") int countDelta);
+}
@@ -0,0 +1,114 @@
+package com.slopeoasis.post.repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.slopeoasis.post.entity.StoredBlob;
+
+public interface StoredBlobRepo extends JpaRepository<StoredBlob, String> {
+
+    String REFERENCED_BY_POST = "EXISTS (SELECT 1 FROM posts p WHERE p.az_blob_name = :blobName) " +
+            "OR EXISTS (SELECT 1 FROM post_preview_images i WHERE i.preview_blob_name = :blobName) " +
+            "OR EXISTS (SELECT 1 FROM post_preview_variants v WHERE v.variant_blob_name = :blobName)";
+
+    //vstavi metapodatke bloba (z eno referenco); obstoječa vrstica ostane (upload in reconciler lahko tečeta hkrati).
+    //lastna transakcija: kliče se po uploadu, izven transakcije shranjevanja posta
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO stored_blobs (blob_name, content_type, size_bytes, sha256, etag, created_at, last_modified, owner_id, ref_count, recorded_at) " +
+                   "VALUES (:blobName, :contentType, :sizeBytes, :sha256, :etag, :createdAt, :lastModified, :ownerId, 1, now()) " +
+                   "ON CONFLICT (blob_name) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("blobName") String blobName, @Param("contentType") String contentType,
+                       @Param("sizeBytes") long sizeBytes, @Param("sha256") String sha256, @Param("etag") String etag,
+                       @Param("createdAt") OffsetDateTime createdAt, @Param("lastModified") OffsetDateTime lastModified,
+                       @Param("ownerId") String ownerId);
+
+    //obstoječ blob prodajalca z enako vsebino: poveča refCount in ga vrne (prazno, ko ga ni).
+    //FOR UPDATE počaka na sočasno sprostitev; vrstica, ki jo ta izbriše, se preskoči
+    @Transactional
+    @Query(value = "UPDATE stored_blobs SET ref_count = ref_count + 1 WHERE blob_name = (" +
+                   "SELECT blob_name FROM stored_blobs WHERE owner_id = :ownerId AND sha256 = :sha256 AND size_bytes = :sizeBytes " +
+                   "ORDER BY recorded_at, blob_name LIMIT 1 FOR UPDATE) " +
+                   "RETURNING *", nativeQuery = true)
+    List<StoredBlob> acquireByContent(@Param("ownerId") String ownerId, @Param("sha256") String sha256,
+                                      @Param("sizeBytes") long sizeBytes);
+
+    //odvzame referenco; vrne preostanek (prazno, ko vrstice ni)
+    @Query(value = "UPDATE stored_blobs SET ref_count = ref_count - 1 WHERE blob_name = :blobName RETURNING ref_count", nativeQuery = true)
+    List<Integer> decrementRefCount(@Param("blobName") String blobName);
+
+    //izbriše vrstico brez referenc, ki je ne uporablja noben post (varovalka za stare vrstice z napačnim refCount)
+    @Modifying
+    @Query(value = "DELETE FROM stored_blobs WHERE blob_name = :blobName AND ref_count <= 0 " +
+                   "AND NOT (" + REFERENCED_BY_POST + ")", nativeQuery = true)
+    int deleteUnreferenced(@Param("blobName") String blobName);
+
+    //ali blob uporablja kateri koli post (glavna datoteka, preview slika ali pomanjšana različica)
+    @Query(value = "SELECT " + REFERENCED_BY_POST, nativeQuery = true)
+    boolean isReferencedByPost(@Param("blobName") String blobName);
+
+    //ali sme prodajalec blob, katerega ime je poslal odjemalec, uporabiti v svojem postu:
+    //ni v lasti drugega prodajalca in ga ne uporablja post drugega prodajalca
+    @Query(value = "SELECT NOT EXISTS (SELECT 1 FROM stored_blobs s WHERE s.blob_name = :blobName " +
+                   "AND s.owner_id IS NOT NULL AND s.owner_id <> :sellerId) " +
+                   "AND NOT EXISTS (SELECT 1 FROM posts p WHERE p.az_blob_name = :blobName AND p.seller_id <> :sellerId) " +
+                   "AND NOT EXISTS (SELECT 1 FROM post_preview_images i JOIN posts p ON p.id = i.post_id " +
+                   "WHERE i.preview_blob_name = :blobName AND p.seller_id <> :sellerId) " +
+                   "AND NOT EXISTS (SELECT 1 FROM post_preview_variants v JOIN posts p ON p.id = v.post_id " +
+                   "WHERE v.variant_blob_name = :blobName AND p.seller_id <> :sellerId)", nativeQuery = true)
+    boolean isAssignable(@Param("blobName") String blobName, @Param("sellerId") String sellerId);
+
+    //katera od imen so zabeležena (samo imena, brez nalaganja entitet v persistence context)
+    @Query("SELECT b.blobName FROM StoredBlob b WHERE b.blobName IN :blobNames")
+    List<String> findRecordedNames(@Param("blobNames") Collection<String> blobNames);
+
+    //isAssignable za več imen naenkrat (bulk import): vrne zabeležena imena, ki jih prodajalec sme uporabiti
+    @Query(value = "SELECT s.blob_name FROM stored_blobs s WHERE s.blob_name IN (:blobNames) " +
+                   "AND (s.owner_id IS NULL OR s.owner_id = :sellerId) " +
+                   "AND NOT EXISTS (SELECT 1 FROM posts p WHERE p.az_blob_name = s.blob_name AND p.seller_id <> :sellerId) " +
+                   "AND NOT EXISTS (SELECT 1 FROM post_preview_images i JOIN posts p ON p.id = i.post_id " +
+                   "WHERE i.preview_blob_name = s.blob_name AND p.seller_id <> :sellerId) " +
+                   "AND NOT EXISTS (SELECT 1 FROM post_preview_variants v JOIN posts p ON p.id = v.post_id " +
+                   "WHERE v.variant_blob_name = s.blob_name AND p.seller_id <> :sellerId)", nativeQuery = true)
+    List<String> findAssignable(@Param("blobNames") Collection<String> blobNames, @Param("sellerId") String sellerId);
+
+    //dodatna referenca za post, ki se sklicuje na obstoječ blob; blob brez lastnika postane last prodajalca.
+    //vrne 0, ko vrstice ni
+    @Modifying
+    @Query(value = "UPDATE stored_blobs SET ref_count = ref_count + 1, owner_id = COALESCE(owner_id, :sellerId) " +
+                   "WHERE blob_name = :blobName", nativeQuery = true)
+    int claim(@Param("blobName") String blobName, @Param("sellerId") String sellerId);
+
+    //claim za več blobov hkrati (bulk import): vsak dobi :refs referenc; vrne število posodobljenih vrstic
+    @Modifying
+    @Query(value = "UPDATE stored_blobs SET ref_count = ref_count + :refs, owner_id = COALESCE(owner_id, :sellerId) " +
+                   "WHERE blob_name IN (:blobNames)", nativeQuery = true)
+    int claimAll(@Param("blobNames") Collection<String> blobNames, @Param("sellerId") String sellerId, @Param("refs") int refs);
+
+    //ali imata bloba zabeleženo enako vsebino (sha256 in velikost); brez sha256 (reconciler) ni znano -> false
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM stored_blobs a JOIN stored_blobs b " +
+                   "ON a.sha256 = b.sha256 AND a.size_bytes = b.size_bytes " +
+                   "WHERE a.blob_name = :first AND b.blob_name = :second)", nativeQuery = true)
+    boolean hasSameContent(@Param("first") String first, @Param("second") String second);
+
+    //glavni blobi postov brez vrstice v stored_blobs, po imenu od :after naprej (keyset, za reconciler)
+    @Query(value = "SELECT p.az_blob_name FROM posts p " +
+                   "WHERE p.az_blob_name > :after " +
+                   "AND NOT EXISTS (SELECT 1 FROM stored_blobs s WHERE s.blob_name = p.az_blob_name) " +
+                   "ORDER BY p.az_blob_name LIMIT :limit", nativeQuery = true)
+    List<String> findUnrecordedMainBlobs(@Param("after") String after, @Param("limit") int limit);
+
+    //isto za preview slike
+    @Query(value = "SELECT DISTINCT i.preview_blob_name FROM post_preview_images i " +
+                   "WHERE i.preview_blob_name > :after " +
+                   "AND NOT EXISTS (SELECT 1 FROM stored_blobs s WHERE s.blob_name = i.preview_blob_name) " +
+                   "ORDER BY i.preview_blob_name LIMIT :limit", nativeQuery = true)
+    List<String> findUnrecordedPreviewBlobs(@Param("after") String after, @Param("limit") int limit);
+}
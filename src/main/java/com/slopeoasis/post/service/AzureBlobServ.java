@@ -1,24 +1,49 @@
 package com.slopeoasis.post.service;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
 import com.azure.storage.blob.models.BlobHttpHeaders;
 import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobRange;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.BlockBlobItem;
+import com.azure.storage.blob.models.ParallelTransferOptions;
+import com.azure.storage.blob.options.BlobInputStreamOptions;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
 import com.azure.storage.blob.sas.BlobSasPermission;
 import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class AzureBlobServ {
@@ -26,9 +51,68 @@ public class AzureBlobServ {
     private final BlobServiceClient blobServiceClient;
     private final BlobContainerClient containerClient;
 
+    // Streaming upload: velikost bloka in število blokov hkrati v teku
+    private final long streamBlockSize;
+    private final int streamConcurrency;
+
+    // Prenos po razponih (openRange): velikost enega prenesenega kosa
+    private final long downloadBlockSize;
+
+    // SAS URL-ji po (blob, ttl); vnos živi do konca trenutnega časovnega okna
+    private final Cache<SasKey, SasEntry> sasCache;
+    private final long sasWindowMillis;
+    // zgornja meja veljavnosti linka (sas.max.minutes), tudi po zaokroževanju na okna
+    private final long sasMaxMillis;
+
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_NOT_FOUND = "not_found";
+    private static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+
+    // omejitev hkratnih klicev na storage; SAS se podpiše lokalno in ne šteje
+    private final Bulkhead bulkhead;
+    // prenosi preko storitve (openRange) držijo mesto do konca prenosa, zato imajo svoj bulkhead:
+    // počasni odjemalci ne smejo zasesti mest za upload in metapodatke
+    private final Bulkhead downloadBulkhead;
+
     public AzureBlobServ(
             @Value("${azure.storage.connection-string}") String connectionString,
-            @Value("${azure.storage.container-name}") String containerName) {
+            @Value("${azure.storage.container-name}") String containerName,
+            @Value("${blob.stream.block-size:4MB}") DataSize streamBlockSize,
+            @Value("${blob.stream.max-concurrency:4}") int streamConcurrency,
+            @Value("${blob.download.block-size:1MB}") DataSize downloadBlockSize,
+            @Value("${sas.cache.window-minutes:5}") int sasWindowMinutes,
+            @Value("${sas.cache.max-entries:50000}") long sasCacheMaxEntries,
+            @Value("${sas.max.minutes:120}") int sasMaxMinutes,
+            MeterRegistry meterRegistry,
+            @Qualifier("blobBulkhead") Bulkhead bulkhead,
+            @Qualifier("downloadBulkhead") Bulkhead downloadBulkhead) {
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = bulkhead;
+        this.downloadBulkhead = downloadBulkhead;
+        this.streamBlockSize = streamBlockSize.toBytes();
+        this.streamConcurrency = streamConcurrency;
+        this.downloadBlockSize = Math.max(1, downloadBlockSize.toBytes());
+        this.sasWindowMillis = Duration.ofMinutes(Math.max(1, sasWindowMinutes)).toMillis();
+        this.sasMaxMillis = Duration.ofMinutes(Math.max(1, sasMaxMinutes)).toMillis();
+        this.sasCache = Caffeine.newBuilder()
+                .maximumSize(sasCacheMaxEntries)
+                .expireAfter(new Expiry<SasKey, SasEntry>() {
+                    @Override
+                    public long expireAfterCreate(SasKey key, SasEntry value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.evictAtMillis - System.currentTimeMillis()));
+                    }
+                    @Override
+                    public long expireAfterUpdate(SasKey key, SasEntry value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+                    @Override
+                    public long expireAfterRead(SasKey key, SasEntry value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
         this.blobServiceClient = new BlobServiceClientBuilder()
                 .connectionString(connectionString)
                 .buildClient();
@@ -43,126 +127,252 @@ public class AzureBlobServ {
     /**
      * Upload file to Azure Blob Storage
      * @param file MultipartFile from upload
-     * @return unique blob name (UUID-based)
+     * @return metadata of the new blob; name is unique (UUID-based), sha256 is computed while uploading
      */
-    public String uploadFile(MultipartFile file) throws Exception {
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".") 
-                ? originalFilename.substring(originalFilename.lastIndexOf(".")) 
-                : "";
-        String blobName = UUID.randomUUID().toString() + extension;
-        
-        BlobClient blobClient = containerClient.getBlobClient(blobName);
-        
-        // Set content type
-        BlobHttpHeaders headers = new BlobHttpHeaders()
-                .setContentType(file.getContentType());
-        
+    public BlobMetadata uploadFile(MultipartFile file) throws Exception {
         try (InputStream inputStream = file.getInputStream()) {
-            blobClient.upload(BinaryData.fromStream(inputStream, file.getSize()), true);
-            blobClient.setHttpHeaders(headers);
+            return uploadFile(inputStream, file.getSize(), file.getContentType(), file.getOriginalFilename());
         }
-        
-        return blobName;
     }
 
     /**
      * Upload file from InputStream with explicit content type
      */
-    public String uploadFile(InputStream inputStream, long size, String contentType, String filename) throws Exception {
-        String extension = filename != null && filename.contains(".") 
-                ? filename.substring(filename.lastIndexOf(".")) 
-                : "";
-        String blobName = UUID.randomUUID().toString() + extension;
-        
+    public BlobMetadata uploadFile(InputStream inputStream, long size, String contentType, String filename) throws Exception {
+        String blobName = newBlobName(filename);
         BlobClient blobClient = containerClient.getBlobClient(blobName);
-        
-        BlobHttpHeaders headers = new BlobHttpHeaders()
-                .setContentType(contentType);
-        
-        blobClient.upload(BinaryData.fromStream(inputStream, size), true);
-        blobClient.setHttpHeaders(headers);
-        
-        return blobName;
+
+        // content type gre zraven v istem klicu (prej ločen setHttpHeaders)
+        HashingInputStream hashing = new HashingInputStream(inputStream);
+        BlobParallelUploadOptions options = new BlobParallelUploadOptions(BinaryData.fromStream(hashing, size))
+                .setHeaders(new BlobHttpHeaders().setContentType(contentType));
+
+        bulkhead.acquire();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            BlockBlobItem item = blobClient.uploadWithResponse(options, null, Context.NONE).getValue();
+            record(sample, "upload", OUTCOME_SUCCESS);
+            return hashing.toMetadata(blobName, contentType, item);
+        } catch (Exception e) {
+            record(sample, "upload", OUTCOME_ERROR);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Upload stream of unknown length (no local spooling). The SDK reads the stream in
+     * fixed-size blocks, keeps a bounded number of staged blocks in flight and commits
+     * the block list at the end, so memory stays around blockSize * maxConcurrency.
+     */
+    public BlobMetadata uploadStream(InputStream inputStream, String contentType, String filename) {
+        String blobName = newBlobName(filename);
+        BlobClient blobClient = containerClient.getBlobClient(blobName);
+
+        ParallelTransferOptions transferOptions = new ParallelTransferOptions()
+                .setBlockSizeLong(streamBlockSize)
+                .setMaxSingleUploadSizeLong(streamBlockSize)
+                .setMaxConcurrency(streamConcurrency);
+        HashingInputStream hashing = new HashingInputStream(inputStream);
+        BlobParallelUploadOptions options = new BlobParallelUploadOptions(hashing)
+                .setParallelTransferOptions(transferOptions)
+                .setHeaders(new BlobHttpHeaders().setContentType(contentType));
+
+        bulkhead.acquire();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            BlockBlobItem item = blobClient.uploadWithResponse(options, null, Context.NONE).getValue();
+            record(sample, "upload_stream", OUTCOME_SUCCESS);
+            return hashing.toMetadata(blobName, contentType, item);
+        } catch (RuntimeException e) {
+            record(sample, "upload_stream", OUTCOME_ERROR);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Hex SHA-256 of a stream, read to the end; the same digest uploads record in BlobMetadata.sha256.
+     */
+    public static String sha256Hex(InputStream inputStream) throws IOException {
+        HashingInputStream hashing = new HashingInputStream(inputStream);
+        hashing.transferTo(OutputStream.nullOutputStream());
+        return hashing.hex();
+    }
+
+    private static String newBlobName(String filename) {
+        String extension = filename != null && filename.contains(".")
+                ? filename.substring(filename.lastIndexOf("."))
+                : "";
+        return UUID.randomUUID().toString() + extension;
     }
 
     /**
-     * Get blob properties (name, type, size)
+     * Get blob properties (name, type, size) straight from storage, one round trip.
+     * Request paths should use BlobMetadataServ, which serves the values recorded at upload.
      */
     public Optional<BlobMetadata> getBlobMetadata(String blobName) {
+        // izven try: zavrnitev ni "blob ne obstaja", ampak 503
+        bulkhead.acquire();
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            BlobClient blobClient = containerClient.getBlobClient(blobName);
-            if (!blobClient.exists()) {
-                return Optional.empty();
-            }
-            
-            BlobProperties properties = blobClient.getProperties();
+            BlobProperties properties = containerClient.getBlobClient(blobName).getProperties();
+            record(sample, "metadata", OUTCOME_SUCCESS);
             
             return Optional.of(new BlobMetadata(
                 blobName,
                 properties.getContentType(),
                 properties.getBlobSize(),
                 properties.getCreationTime(),
-                properties.getLastModified()
+                properties.getLastModified(),
+                null,
+                properties.getETag()
             ));
+        } catch (BlobStorageException e) {
+            record(sample, "metadata", e.getStatusCode() == 404 ? OUTCOME_NOT_FOUND : OUTCOME_ERROR);
+            return Optional.empty();
         } catch (Exception e) {
+            record(sample, "metadata", OUTCOME_ERROR);
             return Optional.empty();
+        } finally {
+            bulkhead.release();
         }
     }
 
     /**
-     * Download blob as InputStream
+     * Download blob as InputStream. The stream holds a blob bulkhead permit until it is closed.
      */
     public Optional<InputStream> downloadBlob(String blobName) {
+        bulkhead.acquire();
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             BlobClient blobClient = containerClient.getBlobClient(blobName);
             if (!blobClient.exists()) {
+                record(sample, "download", OUTCOME_NOT_FOUND);
+                bulkhead.release();
                 return Optional.empty();
             }
-            return Optional.of(blobClient.openInputStream());
+            InputStream in = blobClient.openInputStream();
+            record(sample, "download", OUTCOME_SUCCESS);
+            return Optional.of(new PermitInputStream(in, bulkhead));
         } catch (Exception e) {
+            record(sample, "download", OUTCOME_ERROR);
+            bulkhead.release();
             return Optional.empty();
         }
     }
 
     /**
-     * Generate SAS URL for blob (time-limited download link)
+     * Open bytes [offset, offset + count) of a blob for streaming. The SDK fetches the range in
+     * blob.download.block-size pieces, one at a time as the caller reads, so memory per download
+     * stays at one block. The first block is fetched here, i.e. a missing blob is reported before
+     * the caller writes any response headers. The stream holds a download bulkhead permit until closed,
+     * so long transfers to slow clients don't starve uploads and metadata calls of blob permits.
+     * @return empty when the blob doesn't exist
+     */
+    public Optional<InputStream> openRange(String blobName, long offset, long count) {
+        downloadBulkhead.acquire();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            BlobInputStreamOptions options = new BlobInputStreamOptions()
+                    .setRange(new BlobRange(offset, count))
+                    .setBlockSize((int) Math.min(Integer.MAX_VALUE, downloadBlockSize));
+            InputStream in = containerClient.getBlobClient(blobName).openInputStream(options);
+            record(sample, "download_range", OUTCOME_SUCCESS);
+            return Optional.of(new PermitInputStream(in, downloadBulkhead));
+        } catch (BlobStorageException e) {
+            record(sample, "download_range", e.getStatusCode() == 404 ? OUTCOME_NOT_FOUND : OUTCOME_ERROR);
+            downloadBulkhead.release();
+            if (e.getStatusCode() == 404) return Optional.empty();
+            throw e;
+        } catch (RuntimeException e) {
+            record(sample, "download_range", OUTCOME_ERROR);
+            downloadBulkhead.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Generate SAS URL for blob (time-limited download link).
+     * Expiry is derived from the start of the current sas.cache.window-minutes window only, so all
+     * requests for the same blob and TTL within one window get the identical (browser/CDN cacheable)
+     * URL on every replica, each valid for at least the TTL. The expiry never exceeds sas.max.minutes from
+     * signing: when rounding would go over, it is rounded down to a window boundary instead (a TTL close to
+     * the maximum may then get up to one window less). Entries are evicted when the window ends,
+     * i.e. long before the link itself expires.
+     * Existence is not checked: callers only pass blob names taken from the post itself.
      * @param blobName blob name
-     * @param expirationMinutes how many minutes the link is valid
+     * @param expirationMinutes minimum number of minutes the link is valid
      * @return SAS URL string
      */
     public Optional<String> generateSasUrl(String blobName, int expirationMinutes) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            BlobClient blobClient = containerClient.getBlobClient(blobName);
-            if (!blobClient.exists()) {
-                return Optional.empty();
+            SasKey key = new SasKey(blobName, expirationMinutes);
+            SasEntry cached = sasCache.getIfPresent(key);
+            if (cached != null) {
+                record(sample, "sas", "cached");
+                return Optional.of(cached.url);
             }
-            
-            BlobSasPermission permissions = new BlobSasPermission().setReadPermission(true);
-            OffsetDateTime expiryTime = OffsetDateTime.now().plus(Duration.ofMinutes(expirationMinutes));
-            
-            BlobServiceSasSignatureValues sasValues = new BlobServiceSasSignatureValues(expiryTime, permissions);
-            String sasToken = blobClient.generateSas(sasValues);
-            
-            return Optional.of(blobClient.getBlobUrl() + "?" + sasToken);
+            String url = sasCache.get(key, this::signSas).url;
+            record(sample, "sas", OUTCOME_SUCCESS);
+            return Optional.of(url);
         } catch (Exception e) {
+            record(sample, "sas", OUTCOME_ERROR);
             return Optional.empty();
         }
     }
 
+    private SasEntry signSas(SasKey key) {
+        long now = System.currentTimeMillis();
+        long window = Math.min(sasWindowMillis, Duration.ofMinutes(key.minutes).toMillis());
+        long expiresAt = alignedExpiry(now, Duration.ofMinutes(key.minutes).toMillis(), window, sasMaxMillis);
+
+        BlobClient blobClient = containerClient.getBlobClient(key.blobName);
+        BlobSasPermission permissions = new BlobSasPermission().setReadPermission(true);
+        OffsetDateTime expiryTime = OffsetDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), ZoneOffset.UTC);
+
+        BlobServiceSasSignatureValues sasValues = new BlobServiceSasSignatureValues(expiryTime, permissions);
+        String sasToken = blobClient.generateSas(sasValues);
+
+        // naslednje okno da drug expiry -> takrat vnos zavržemo
+        long evictAt = Math.floorDiv(now, window) * window + window;
+        return new SasEntry(blobClient.getBlobUrl() + "?" + sasToken, evictAt);
+    }
+
+    // konec trenutnega okna + ttl zaokrožen navzgor na cela okna: odvisno samo od začetka okna (enako na vseh replikah),
+    // link velja vsaj ttl in manj kot ttl + 2 * window. Nad now + max se zaokroži navzdol na mejo okna, ki je
+    // še vedno za koncem trenutnega okna (window <= ttl <= max); link tedaj velja vsaj max - window
+    static long alignedExpiry(long nowMillis, long ttlMillis, long windowMillis, long maxMillis) {
+        long windowEnd = Math.floorDiv(nowMillis, windowMillis) * windowMillis + windowMillis;
+        long expiry = windowEnd + Math.floorDiv(ttlMillis + windowMillis - 1, windowMillis) * windowMillis;
+        long limit = nowMillis + maxMillis;
+        return expiry <= limit ? expiry : Math.floorDiv(limit, windowMillis) * windowMillis;
+    }
+
     /**
      * Delete blob from storage
      */
     public boolean deleteBlob(String blobName) {
+        sasCache.asMap().keySet().removeIf(k -> k.blobName.equals(blobName));
+        bulkhead.acquire();
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             BlobClient blobClient = containerClient.getBlobClient(blobName);
             if (!blobClient.exists()) {
+                record(sample, "delete", OUTCOME_NOT_FOUND);
                 return false;
             }
             blobClient.delete();
+            record(sample, "delete", OUTCOME_SUCCESS);
             return true;
         } catch (Exception e) {
+            record(sample, "delete", OUTCOME_ERROR);
             return false;
+        } finally {
+            bulkhead.release();
         }
     }
 
@@ -170,16 +380,143 @@ public class AzureBlobServ {
      * Check if blob exists
      */
     public boolean blobExists(String blobName) {
+        bulkhead.acquire();
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             BlobClient blobClient = containerClient.getBlobClient(blobName);
-            return blobClient.exists();
+            boolean exists = blobClient.exists();
+            record(sample, "exists", exists ? OUTCOME_SUCCESS : OUTCOME_NOT_FOUND);
+            return exists;
         } catch (Exception e) {
+            record(sample, "exists", OUTCOME_ERROR);
             return false;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    // blob.operation{op, outcome}: trajanje klicev na Azure Blob Storage
+    private void record(Timer.Sample sample, String op, String outcome) {
+        sample.stop(Timer.builder("blob.operation")
+                .description("Azure Blob Storage calls")
+                .tag("op", op)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    // prenos drži mesto v bulkheadu, dokler ga klicatelj ne zapre
+    private static class PermitInputStream extends FilterInputStream {
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final Bulkhead bulkhead;
+
+        PermitInputStream(InputStream in, Bulkhead bulkhead) {
+            super(in);
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) bulkhead.release();
+            }
+        }
+    }
+
+    private record SasKey(String blobName, int minutes) {}
+
+    private record SasEntry(String url, long evictAtMillis) {}
+
+    // SHA-256 in število prebranih bajtov, sproti med branjem (upload ne bere vsebine dvakrat).
+    // mark/reset je podprt, če ga podpira tok pod njim, zato SDK ob ponovitvi ne izgubi stanja digesta.
+    private static final class HashingInputStream extends FilterInputStream {
+        private MessageDigest digest = sha256();
+        private long count;
+        private MessageDigest markedDigest;
+        private long markedCount;
+
+        HashingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                digest.update((byte) b);
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                digest.update(b, off, n);
+                count += n;
+            }
+            return n;
+        }
+
+        // preskočeni bajti morajo tudi v digest
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[8192];
+            long skipped = 0;
+            while (skipped < n) {
+                int r = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (r < 0) break;
+                skipped += r;
+            }
+            return skipped;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            in.mark(readlimit);
+            markedDigest = copy(digest);
+            markedCount = count;
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            if (markedDigest == null) throw new IOException("Mark not set");
+            in.reset();
+            digest = copy(markedDigest);
+            count = markedCount;
+        }
+
+        BlobMetadata toMetadata(String blobName, String contentType, BlockBlobItem item) {
+            return new BlobMetadata(blobName, contentType, count, item.getLastModified(), item.getLastModified(),
+                    hex(), item.getETag());
+        }
+
+        String hex() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        private static MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static MessageDigest copy(MessageDigest digest) {
+            try {
+                return (MessageDigest) digest.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
         }
     }
 
     /**
-     * DTO for blob metadata
+     * DTO for blob metadata. sha256 is only known for blobs uploaded through this service
+     * (null for blobs backfilled from storage properties).
      */
     public static class BlobMetadata {
         public final String name;
@@ -187,14 +524,23 @@ public class AzureBlobServ {
         public final long sizeBytes;
         public final OffsetDateTime createdAt;
         public final OffsetDateTime lastModified;
+        public final String sha256;
+        public final String etag;
 
         public BlobMetadata(String name, String contentType, long sizeBytes, 
                            OffsetDateTime createdAt, OffsetDateTime lastModified) {
+            this(name, contentType, sizeBytes, createdAt, lastModified, null, null);
+        }
+
+        public BlobMetadata(String name, String contentType, long sizeBytes,
+                           OffsetDateTime createdAt, OffsetDateTime lastModified, String sha256, String etag) {
             this.name = name;
             this.contentType = contentType;
             this.sizeBytes = sizeBytes;
             this.createdAt = createdAt;
             this.lastModified = lastModified;
+            this.sha256 = sha256;
+            this.etag = etag;
         }
 
         public String getSizeFormatted() {
@@ -0,0 +1,142 @@
+package com.slopeoasis.post.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.slopeoasis.post.repository.StoredBlobRepo;
+import com.slopeoasis.post.service.AzureBlobServ.BlobMetadata;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background backfill of stored_blobs for main and preview blobs uploaded before metadata was recorded
+ * at upload time (or whose recording failed). Every blob.metadata.reconcile-interval it walks the posts'
+ * blob names that have no row yet, in name order and batches of blob.metadata.reconcile-batch, reads
+ * their properties from storage and inserts them. A Postgres session advisory lock makes sure only one
+ * replica runs at a time; blobs missing from storage are counted and retried on the next run.
+ */
+@Component
+public class BlobMetadataReconciler {
+
+    // pg_try_advisory_lock ključ, skupen vsem replikam
+    private static final String LOCK_KEY = "hashtext('stored_blobs_reconciler')";
+
+    private final StoredBlobRepo storedBlobRepo;
+    private final AzureBlobServ azureBlobServ;
+    private final BlobMetadataServ blobMetadataServ;
+    private final JdbcTemplate jdbcTemplate;
+    private final long intervalMillis;
+    private final long initialDelayMillis;
+    private final int batchSize;
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder backfilled = new LongAdder();
+    private final LongAdder missing = new LongAdder();
+
+    public BlobMetadataReconciler(StoredBlobRepo storedBlobRepo, AzureBlobServ azureBlobServ,
+                                  BlobMetadataServ blobMetadataServ, JdbcTemplate jdbcTemplate,
+                                  @Value("${blob.metadata.reconcile-interval:10m}") Duration interval,
+                                  @Value("${blob.metadata.reconcile-initial-delay:1m}") Duration initialDelay,
+                                  @Value("${blob.metadata.reconcile-batch:200}") int batchSize) {
+        this.storedBlobRepo = storedBlobRepo;
+        this.azureBlobServ = azureBlobServ;
+        this.blobMetadataServ = blobMetadataServ;
+        this.jdbcTemplate = jdbcTemplate;
+        this.intervalMillis = interval.toMillis();
+        this.initialDelayMillis = initialDelay.toMillis();
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    //interval 0 izklopi reconciler
+    @PostConstruct
+    public void start() {
+        if (intervalMillis <= 0 || scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "blob-metadata-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::backgroundRun, initialDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private void backgroundRun() {
+        try {
+            int recorded = reconcile();
+            if (recorded > 0) System.out.println("[BlobMetadataReconciler] Backfilled metadata for " + recorded + " blobs");
+        } catch (RuntimeException e) {
+            // poln bulkhead, baza ali storage nedosegljiva -> nadaljuje ob naslednjem zagonu
+            System.err.println("[BlobMetadataReconciler] Run failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Eno dopolnjevanje do konca (ali do napake).
+     * @return število novih vrstic; 0 tudi, ko reconciler že teče na drugi repliki
+     */
+    public int reconcile() {
+        // zaklep je vezan na povezavo, zato jo držimo do konca; poizvedbe in inserti gredo po drugih povezavah
+        Integer recorded = jdbcTemplate.execute((ConnectionCallback<Integer>) con -> {
+            if (!queryBoolean(con, "SELECT pg_try_advisory_lock(" + LOCK_KEY + ")")) return 0;
+            try {
+                return backfill(storedBlobRepo::findUnrecordedMainBlobs)
+                        + backfill(storedBlobRepo::findUnrecordedPreviewBlobs);
+            } finally {
+                queryBoolean(con, "SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+            }
+        });
+        return recorded != null ? recorded : 0;
+    }
+
+    private int backfill(BiFunction<String, Integer, List<String>> unrecorded) {
+        int recorded = 0;
+        String after = "";
+        while (!Thread.currentThread().isInterrupted()) {
+            List<String> names = unrecorded.apply(after, batchSize);
+            for (String name : names) {
+                Optional<BlobMetadata> metadata = azureBlobServ.getBlobMetadata(name);
+                if (metadata.isPresent()) {
+                    if (blobMetadataServ.record(metadata.get())) {
+                        backfilled.increment();
+                        recorded++;
+                    }
+                } else {
+                    missing.increment();
+                }
+            }
+            if (names.size() < batchSize) break;
+            after = names.get(names.size() - 1);
+        }
+        return recorded;
+    }
+
+    private static boolean queryBoolean(Connection con, String sql) throws SQLException {
+        try (PreparedStatement st = con.prepareStatement(sql); ResultSet rs = st.executeQuery()) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    public long getBackfilledCount() { return backfilled.sum(); }
+
+    public long getMissingCount() { return missing.sum(); }
+}
@@ -0,0 +1,174 @@
+package com.slopeoasis.post.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.slopeoasis.post.entity.StoredBlob;
+import com.slopeoasis.post.repository.StoredBlobRepo;
+import com.slopeoasis.post.service.AzureBlobServ.BlobMetadata;
+
+/**
+ * Metapodatki blobov (tip, velikost, SHA-256, čas nastanka), zajeti ob uploadu in shranjeni v stored_blobs.
+ * Branje gre iz lokalnega cacha ali baze; storage se vpraša samo za blob, ki ga ni v tabeli
+ * (star blob, ki ga BlobMetadataReconciler še ni dopolnil), rezultat pa se takrat shrani.
+ * Ista tabela je indeks vsebine za deduplikacijo uploadov: (lastnik, sha256, velikost) -> blob s številom referenc.
+ */
+@Service
+public class BlobMetadataServ {
+
+    private final StoredBlobRepo storedBlobRepo;
+    private final AzureBlobServ azureBlobServ;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean dedupEnabled;
+    // blob se po uploadu ne spremeni, zato vnosi ne zastarajo; omejena je le velikost
+    private final Cache<String, BlobMetadata> cache;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder dbHits = new LongAdder();
+    private final LongAdder storageProbes = new LongAdder();
+    private final LongAdder dedupHits = new LongAdder();
+    private final LongAdder dedupBytes = new LongAdder();
+
+    public BlobMetadataServ(StoredBlobRepo storedBlobRepo, AzureBlobServ azureBlobServ,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${blob.metadata.cache.max-entries:20000}") long maxEntries,
+                            @Value("${blob.metadata.cache.ttl:1h}") Duration ttl,
+                            @Value("${blob.dedup.enabled:true}") boolean dedupEnabled) {
+        this.storedBlobRepo = storedBlobRepo;
+        this.azureBlobServ = azureBlobServ;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // release se kliče tudi po commitu transakcije posta (PostsServ), zato vedno v svoji transakciji
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.dedupEnabled = dedupEnabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Shrani metapodatke pravkar naloženega bloba. Napaka se samo zabeleži: upload je uspel,
+     * manjkajočo vrstico kasneje dopolni reconciler (brez sha256).
+     * @return false, če shranjevanje ni uspelo
+     */
+    public boolean record(BlobMetadata metadata) {
+        return record(metadata, null);
+    }
+
+    /**
+     * Kot record(metadata), blob pa postane viden za deduplikacijo uploadov tega lastnika (acquire).
+     * Vrstica ima eno referenco, ki jo drži upload, dokler je ne prevzame post ali sprosti release.
+     */
+    public boolean record(BlobMetadata metadata, String ownerId) {
+        try {
+            storedBlobRepo.insertIfAbsent(metadata.name, metadata.contentType, metadata.sizeBytes,
+                    metadata.sha256, metadata.etag, metadata.createdAt, metadata.lastModified, ownerId);
+            cache.put(metadata.name, metadata);
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("[BlobMetadataServ] Failed to record metadata for " + metadata.name + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Obstoječ blob lastnika z enako vsebino; ob zadetku se mu poveča število referenc, klicatelj pa mora
+     * referenco sprostiti (release), če bloba ne uporabi.
+     * @return empty, ko takega bloba ni, je deduplikacija izklopljena (blob.dedup.enabled) ali baza ni dosegljiva
+     *         (klicatelj blob naloži na novo)
+     */
+    public Optional<BlobMetadata> acquire(String ownerId, String sha256, long sizeBytes) {
+        if (!dedupEnabled || ownerId == null || sha256 == null) return Optional.empty();
+        try {
+            List<StoredBlob> found = storedBlobRepo.acquireByContent(ownerId, sha256, sizeBytes);
+            if (found.isEmpty()) return Optional.empty();
+            dedupHits.increment();
+            dedupBytes.add(sizeBytes);
+            return Optional.of(toMetadata(found.get(0)));
+        } catch (RuntimeException e) {
+            System.err.println("[BlobMetadataServ] Content lookup failed: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Sprosti po eno referenco za vsako pojavitev bloba (zavržen upload ali blob, ki ga post ne uporablja več).
+     * Vrstice brez referenc se izbrišejo, če bloba ne uporablja noben post.
+     * @return bloba, ki ju nihče več ne uporablja in ju je treba izbrisati iz storage-a (tudi tisti brez vrstice,
+     *         ki jih ne uporablja noben post); ob napaki baze prazno, ker ne vemo, ali je blob deljen
+     *         (ostane osirotel namesto izgubljen)
+     */
+    public List<String> release(Collection<String> blobNames) {
+        if (blobNames.isEmpty()) return List.of();
+        try {
+            List<String> unreferenced = transactionTemplate.execute(status -> {
+                List<String> names = new ArrayList<>();
+                for (String blobName : blobNames) {
+                    List<Integer> remaining = storedBlobRepo.decrementRefCount(blobName);
+                    boolean unused = remaining.isEmpty()
+                            ? !storedBlobRepo.isReferencedByPost(blobName)
+                            : remaining.get(0) <= 0 && storedBlobRepo.deleteUnreferenced(blobName) > 0;
+                    if (unused && !names.contains(blobName)) names.add(blobName);
+                }
+                return names;
+            });
+            cache.invalidateAll(unreferenced);
+            return unreferenced;
+        } catch (RuntimeException e) {
+            System.err.println("[BlobMetadataServ] Failed to release " + blobNames + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Metapodatki bloba: cache -> stored_blobs -> storage (in shrani).
+     * @return empty, če blob ne obstaja
+     * @throws BulkheadFullException če je treba vprašati storage in je blob bulkhead poln
+     */
+    public Optional<BlobMetadata> get(String blobName) {
+        BlobMetadata cached = cache.getIfPresent(blobName);
+        if (cached != null) {
+            cacheHits.increment();
+            return Optional.of(cached);
+        }
+        Optional<BlobMetadata> stored = storedBlobRepo.findById(blobName).map(BlobMetadataServ::toMetadata);
+        if (stored.isPresent()) {
+            dbHits.increment();
+            cache.put(blobName, stored.get());
+            return stored;
+        }
+        storageProbes.increment();
+        Optional<BlobMetadata> probed = azureBlobServ.getBlobMetadata(blobName);
+        probed.ifPresent(this::record);
+        return probed;
+    }
+
+    private static BlobMetadata toMetadata(StoredBlob b) {
+        return new BlobMetadata(b.getBlobName(), b.getContentType(), b.getSizeBytes(),
+                b.getCreatedAt(), b.getLastModified(), b.getSha256(), b.getEtag());
+    }
+
+    public boolean isDedupEnabled() { return dedupEnabled; }
+
+    public long getCacheHitCount() { return cacheHits.sum(); }
+
+    public long getDbHitCount() { return dbHits.sum(); }
+
+    public long getStorageProbeCount() { return storageProbes.sum(); }
+
+    public long getDedupHitCount() { return dedupHits.sum(); }
+
+    public long getDedupBytes() { return dedupBytes.sum(); }
+}
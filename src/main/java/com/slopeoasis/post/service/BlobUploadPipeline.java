@@ -0,0 +1,154 @@
+package com.slopeoasis.post.service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.slopeoasis.post.service.AzureBlobServ.BlobMetadata;
+
+/**
+ * Vzporedni upload glavne datoteke in preview slik. Vsi deli so hkrati v teku
+ * (omejeno z blobUploadExecutor), tako da je latenca približno enaka najdaljšemu
+ * uploadu namesto vsoti vseh. Če katerikoli del ne uspe, se že naloženi blobi izbrišejo.
+ * Metapodatki vsakega naloženega bloba se shranijo v BlobMetadataServ.
+ * Datoteka se pred prenosom zgosti (SHA-256): če ima prodajalec blob z enako vsebino že shranjen,
+ * se prenos preskoči in uporabi obstoječ blob (z dodatno referenco).
+ */
+@Service
+public class BlobUploadPipeline {
+
+    private final AzureBlobServ azureBlobServ;
+    private final BlobMetadataServ blobMetadataServ;
+    private final Executor executor;
+    private final Executor releaseExecutor;
+
+    public BlobUploadPipeline(AzureBlobServ azureBlobServ, BlobMetadataServ blobMetadataServ,
+                              @Qualifier("blobUploadExecutor") Executor executor,
+                              @Qualifier("blobReleaseExecutor") Executor releaseExecutor) {
+        this.azureBlobServ = azureBlobServ;
+        this.blobMetadataServ = blobMetadataServ;
+        this.executor = executor;
+        this.releaseExecutor = releaseExecutor;
+    }
+
+    /**
+     * Naloži glavno datoteko (lahko null) in vse neprazne preview slike.
+     * @param ownerId prodajalec; deduplikacija velja samo med njegovimi blobi (null = brez deduplikacije)
+     * @throws UploadFailedException če kateri koli upload ne uspe (naloženi deli so takrat že izbrisani)
+     */
+    public UploadedBlobs uploadAll(MultipartFile mainFile, List<MultipartFile> previews, String ownerId) throws UploadFailedException {
+        CompletableFuture<String> main = mainFile != null ? submit(mainFile, ownerId) : null;
+        List<CompletableFuture<String>> previewFutures = new ArrayList<>();
+        if (previews != null) {
+            for (MultipartFile preview : previews) {
+                if (preview != null && !preview.isEmpty()) previewFutures.add(submit(preview, ownerId));
+            }
+        }
+
+        // počakamo na vse, tudi ko kaj pade, da vemo kaj je treba pobrisati
+        List<CompletableFuture<String>> all = new ArrayList<>(previewFutures);
+        if (main != null) all.add(main);
+        try {
+            CompletableFuture.allOf(all.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            List<String> uploaded = new ArrayList<>();
+            for (CompletableFuture<String> f : all) {
+                if (!f.isCompletedExceptionally()) uploaded.add(f.join());
+            }
+            discard(uploaded);
+            boolean mainFailed = main != null && main.isCompletedExceptionally();
+            throw new UploadFailedException(mainFailed, e.getCause());
+        }
+
+        List<String> previewBlobNames = new ArrayList<>(previewFutures.size());
+        for (CompletableFuture<String> f : previewFutures) previewBlobNames.add(f.join());
+        return new UploadedBlobs(main != null ? main.join() : null, previewBlobNames);
+    }
+
+    //sprosti bloba, ki jih ne bomo uporabili (npr. ko shranjevanje posta ne uspe); deljeni ostanejo v storage-u
+    public void discard(Collection<String> blobNames) {
+        for (String blobName : blobMetadataServ.release(blobNames)) {
+            boolean deleted;
+            try {
+                deleted = azureBlobServ.deleteBlob(blobName);
+            } catch (BulkheadFullException e) {
+                // pospravljanje ne sme prekriti prvotne napake; ostanek je samo osirotel blob
+                deleted = false;
+            }
+            if (!deleted) {
+                System.err.println("[BlobUploadPipeline] Failed to delete orphaned blob " + blobName);
+            }
+        }
+    }
+
+    /**
+     * Kot discard, a na blobReleaseExecutor; za klic iz afterCommit, ko povezava transakcije še ni vrnjena v pool
+     * (release bi si izposodil drugo povezavo, brisanje iz storage-a pa bi jo držalo).
+     */
+    public void discardAfterCommit(Collection<String> blobNames) {
+        List<String> names = List.copyOf(blobNames);
+        try {
+            releaseExecutor.execute(() -> discard(names));
+        } catch (RejectedExecutionException e) {
+            // samo ob zaustavitvi; reference ostanejo, blobi so osiroteli
+            System.err.println("[BlobUploadPipeline] Release rejected, orphaned blobs " + names);
+        }
+    }
+
+    private CompletableFuture<String> submit(MultipartFile file, String ownerId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (ownerId != null && blobMetadataServ.isDedupEnabled()) {
+                    // datoteka je že lokalno (multipart spool), zato je zgoščevanje poceni v primerjavi s prenosom
+                    String sha256;
+                    try (InputStream in = file.getInputStream()) {
+                        sha256 = AzureBlobServ.sha256Hex(in);
+                    }
+                    Optional<BlobMetadata> existing = blobMetadataServ.acquire(ownerId, sha256, file.getSize());
+                    if (existing.isPresent()) return existing.get().name;
+                }
+                BlobMetadata metadata = azureBlobServ.uploadFile(file);
+                blobMetadataServ.record(metadata, ownerId);
+                return metadata.name;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    // Rezultat uploada: ime glavnega bloba (null, če ga ni bilo) in imena preview blobov v vrstnem redu
+    public static class UploadedBlobs {
+        public final String mainBlobName;
+        public final List<String> previewBlobNames;
+        public UploadedBlobs(String mainBlobName, List<String> previewBlobNames) {
+            this.mainBlobName = mainBlobName;
+            this.previewBlobNames = previewBlobNames;
+        }
+
+        public List<String> all() {
+            List<String> names = new ArrayList<>(previewBlobNames);
+            if (mainBlobName != null) names.add(mainBlobName);
+            return names;
+        }
+    }
+
+    public static class UploadFailedException extends Exception {
+        private final boolean mainFile;
+        public UploadFailedException(boolean mainFile, Throwable cause) {
+            super(mainFile ? "Failed to upload main file" : "Failed to upload preview image", cause);
+            this.mainFile = mainFile;
+        }
+
+        public boolean isMainFile() { return mainFile; }
+    }
+}
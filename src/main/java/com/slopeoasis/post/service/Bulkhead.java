@@ -0,0 +1,61 @@
+package com.slopeoasis.post.service;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Omejitev hkratnih klicev na en zunanji sistem (blob storage, user-service, baza).
+ * Z virtualnimi nitmi število niti ne omejuje več obremenitve, zato ima vsak sistem svojo kvoto:
+ * počasen blob storage tako ne zasede vseh povezav do baze in obratno.
+ * Ko je kvota polna, klic počaka največ maxWait in nato takoj pade z BulkheadFullException (503),
+ * namesto da bi zahtevki čakali v vrsti do timeouta.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final LongAdder rejections = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, Duration maxWait) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxWaitNanos = Math.max(0, maxWait.toNanos());
+        this.permits = new Semaphore(this.maxConcurrent);
+    }
+
+    /**
+     * Zasede mesto; klicatelj ga mora sprostiti z release() (v finally).
+     * @throws BulkheadFullException če v maxWait ni prostega mesta
+     */
+    public void acquire() {
+        boolean acquired;
+        try {
+            acquired = maxWaitNanos == 0
+                    ? permits.tryAcquire()
+                    : permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejections.increment();
+            throw new BulkheadFullException(name);
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getName() { return name; }
+
+    public int getMaxConcurrent() { return maxConcurrent; }
+
+    public int getInUse() { return maxConcurrent - permits.availablePermits(); }
+
+    public long getRejectionCount() { return rejections.sum(); }
+}
@@ -0,0 +1,24 @@
+package com.slopeoasis.post.service;
+
+import java.util.Optional;
+
+// Bulkhead je poln; kontrolerji ga vrnejo kot 503 z Retry-After
+public class BulkheadFullException extends RuntimeException {
+
+    private final String bulkhead;
+
+    public BulkheadFullException(String bulkhead) {
+        super("Too many concurrent " + bulkhead + " calls");
+        this.bulkhead = bulkhead;
+    }
+
+    public String getBulkhead() { return bulkhead; }
+
+    // zavrnitev je lahko zavita (npr. v CannotCreateTransactionException ali UploadFailedException)
+    public static Optional<BulkheadFullException> findIn(Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof BulkheadFullException full) return Optional.of(full);
+        }
+        return Optional.empty();
+    }
+}
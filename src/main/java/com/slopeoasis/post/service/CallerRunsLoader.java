@@ -0,0 +1,44 @@
+package com.slopeoasis.post.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+/**
+ * Read-through nad Caffeine AsyncCache, kjer nalaganje teče v klicoči niti izven zaklepa mape.
+ * Cache.get(key, loader) izvede loader znotraj ConcurrentHashMap.compute (synchronized): virtualna nit,
+ * ki takrat čaka na bazo, ostane pripeta na nosilno nit. Tukaj se v mapo atomarno vstavi samo prazen
+ * future, loader pa se izvede po tem; sočasni klici za isti ključ še vedno počakajo na isti rezultat.
+ * Null ali napaka se ne shranita (Caffeine tak future sam odstrani).
+ */
+final class CallerRunsLoader {
+
+    private CallerRunsLoader() {}
+
+    static <K, V> V get(AsyncCache<K, V> cache, K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> future = cache.getIfPresent(key);
+        if (future == null) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            future = cache.asMap().putIfAbsent(key, mine);
+            if (future == null) {
+                future = mine;
+                try {
+                    mine.complete(loader.apply(key));
+                } catch (RuntimeException | Error e) {
+                    mine.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // napaka nalaganja v drugi niti, vrže se enaka kot pri klicatelju, ki je nalagal
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+}
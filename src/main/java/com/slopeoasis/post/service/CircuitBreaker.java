@@ -0,0 +1,108 @@
+package com.slopeoasis.post.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Odklopnik za klice na zunanjo storitev.
+ * - CLOSED: klici gredo skozi; po failureThreshold zaporednih napakah se odpre
+ * - OPEN: klici se za openDuration takoj zavrnejo (klicatelj uporabi rezervni odgovor)
+ * - HALF_OPEN: po preteku openDuration gre skozi en poskusni klic; uspeh zapre, napaka spet odpre
+ * Vsak poskusni klic dobi svojo generacijo kot permit, zato napaka klica, ki se je začel pred odprtjem,
+ * ne sprosti poskusa in ne odpre odklopnika znova.
+ * Kritični odseki so kratki in brez I/O, zato synchronized ne pripne virtualnih niti za dlje časa.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // tryAcquire: klic ne sme iti skozi
+    public static final long REJECTED = -1;
+    // permit navadnega klica v CLOSED stanju; poskusni klici dobijo generacije od 1 naprej
+    private static final long NO_TRIAL = 0;
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long trialGeneration;
+
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder opens = new LongAdder();
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = Math.max(0, openDuration.toNanos());
+    }
+
+    /**
+     * Permit za klic ali REJECTED, če klic ne sme iti skozi. Po permitu mora klicatelj poklicati onSuccess,
+     * onFailure(permit) ali release(permit).
+     */
+    public synchronized long tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return NO_TRIAL;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) break;
+                state = State.HALF_OPEN;
+                return startTrial();
+            case HALF_OPEN:
+                if (trialInFlight) break;
+                return startTrial();
+        }
+        rejections.increment();
+        return REJECTED;
+    }
+
+    private long startTrial() {
+        trialInFlight = true;
+        return ++trialGeneration;
+    }
+
+    // permit pripada poskusnemu klicu, ki je še v teku
+    private boolean isCurrentTrial(long permit) {
+        return trialInFlight && permit == trialGeneration;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure(long permit) {
+        boolean trial = isCurrentTrial(permit);
+        if (trial) trialInFlight = false;
+        // klic, ki se je začel pred odprtjem, ne podaljša odprtega stanja in ne odloča o poskusu
+        if (state == State.OPEN || (state == State.HALF_OPEN && !trial)) return;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            consecutiveFailures = 0;
+            opens.increment();
+        }
+    }
+
+    // klic se ni izvedel (npr. poln bulkhead), rezultat ne šteje ne kot uspeh ne kot napaka
+    public synchronized void release(long permit) {
+        if (isCurrentTrial(permit)) trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        // odprt odklopnik po preteku openDuration že sprejme poskusni klic
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) return State.HALF_OPEN;
+        return state;
+    }
+
+    public String getName() { return name; }
+
+    public long getRejectionCount() { return rejections.sum(); }
+
+    public long getOpenCount() { return opens.sum(); }
+}
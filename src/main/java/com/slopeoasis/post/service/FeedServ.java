@@ -0,0 +1,73 @@
+package com.slopeoasis.post.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.slopeoasis.post.entity.Posts;
+import com.slopeoasis.post.entity.Posts.Tag;
+import com.slopeoasis.post.repository.PostsRepo;
+import com.slopeoasis.post.service.PostsServ.CursorPage;
+
+/**
+ * Personaliziran feed (/posts/themes): ACTIVE posti, ki imajo vsaj enega od uporabnikovih tagov.
+ * Ena poizvedba nad tag_mask (TagFilter any-of) prebere size+1 postov za cursorjem (keyset na
+ * (uploadTime, id)); post z več temami je vrstica samo enkrat, zato ni združevanja ne odstranjevanja
+ * podvojenih. Strani so kratek čas predpomnjene na uporabnika.
+ */
+@Service
+public class FeedServ {
+
+    private final PostsRepo postsRepo;
+    private final AsyncCache<FeedKey, CursorPage<Posts>> cache;
+
+    public FeedServ(PostsRepo postsRepo,
+                    @Value("${feed.cache.ttl-seconds:30}") long ttlSeconds,
+                    @Value("${feed.cache.max-entries:10000}") long maxEntries) {
+        this.postsRepo = postsRepo;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxEntries)
+                .buildAsync();
+    }
+
+    //empty pomeni neveljaven cursor
+    @Transactional(readOnly = true)
+    public Optional<CursorPage<Posts>> getFeed(String userId, Set<Tag> themes, String cursor, int size) {
+        Optional<PostCursor> from = PostCursor.decode(cursor);
+        if (from.isEmpty()) return Optional.empty();
+        int limit = Math.max(1, size);
+        if (themes.isEmpty()) return Optional.of(new CursorPage<>(List.of(), null));
+
+        FeedKey key = new FeedKey(userId, new TreeSet<>(themes).toString(), from.get().encode(), limit);
+        // poizvedba teče izven zaklepa mape, da virtualna nit med čakanjem na bazo ni pripeta
+        return Optional.of(CallerRunsLoader.get(cache, key, k -> load(themes, from.get(), limit)));
+    }
+
+    private CursorPage<Posts> load(Set<Tag> themes, PostCursor from, int limit) {
+        List<Posts> rows = postsRepo.findByTagMaskActiveAfter(TagFilter.anyOf(themes).matchingMasks(),
+                from.getUploadTime(), from.getId(), PageRequest.of(0, limit + 1));
+        // stran se predpomni in serializira izven te seje, zato morajo biti kolekcije naložene
+        for (Posts p : rows) {
+            Hibernate.initialize(p.getTags());
+            Hibernate.initialize(p.getPreviewImages());
+            Hibernate.initialize(p.getPreviewVariants());
+        }
+        if (rows.size() <= limit) return new CursorPage<>(new ArrayList<>(rows), null);
+        List<Posts> page = rows.subList(0, limit);
+        return new CursorPage<>(new ArrayList<>(page), PostCursor.after(page.get(limit - 1)).encode());
+    }
+
+    private record FeedKey(String userId, String themes, String cursor, int size) {}
+}
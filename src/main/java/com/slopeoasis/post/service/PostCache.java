@@ -0,0 +1,234 @@
+package com.slopeoasis.post.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hibernate.Hibernate;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.slopeoasis.post.entity.Posts;
+import com.slopeoasis.post.repository.PostsRepo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Read-through cache posnetkov postov (po id) za getPostInfo/checkAvailability.
+ * - posnetek je kopija entitete z naloženimi tagi in previewImages, brez kupcev (ti se preverjajo z EXISTS)
+ * - vsaka sprememba posta pokliče evict(): v isti transakciji pošlje pg_notify na kanal post.cache.channel,
+ *   po commitu pa odstrani vnos lokalno; Postgres obvestilo dostavi šele ob commitu, vsem replikam
+ * - vsaka replika posluša kanal na svoji (ne-pool) povezavi; ob izgubi povezave se cache izprazni,
+ *   ker bi lahko zamudili obvestila
+ * - expire-after-write je samo varovalka, če bi kakšna sprememba obšla evict()
+ */
+@Component
+public class PostCache {
+
+    private static final String ALL = "*";
+
+    private final PostsRepo postsRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTx;
+    private final AsyncCache<Integer, Posts> cache;
+    private final boolean enabled;
+
+    private final String channel;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final long pollMillis;
+    private final long reconnectMillis;
+    private volatile boolean running;
+    private Thread listener;
+
+    private final LongAdder localInvalidations = new LongAdder();
+    private final LongAdder remoteInvalidations = new LongAdder();
+    private final LongAdder listenerReconnects = new LongAdder();
+
+    public PostCache(PostsRepo postsRepo, JdbcTemplate jdbcTemplate, PlatformTransactionManager txManager,
+                     @Value("${post.cache.enabled:true}") boolean enabled,
+                     @Value("${post.cache.max-entries:10000}") long maxEntries,
+                     @Value("${post.cache.ttl:10m}") Duration ttl,
+                     @Value("${post.cache.channel:post_changed}") String channel,
+                     @Value("${post.cache.listen-poll:5s}") Duration poll,
+                     @Value("${post.cache.listen-reconnect:5s}") Duration reconnect,
+                     @Value("${spring.datasource.url}") String jdbcUrl,
+                     @Value("${spring.datasource.username:}") String username,
+                     @Value("${spring.datasource.password:}") String password) {
+        this.postsRepo = postsRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setReadOnly(true);
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        this.channel = channel;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.pollMillis = Math.max(1, poll.toMillis());
+        this.reconnectMillis = Math.max(1, reconnect.toMillis());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || listener != null) return;
+        running = true;
+        listener = new Thread(this::listen, "post-cache-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) listener.interrupt();
+    }
+
+    /**
+     * Posnetek posta iz cacha ali baze. Vrnjen objekt je vedno nova kopija (ni upravljan z JPA),
+     * klicatelj ga lahko poljubno spreminja. Neobstoječi posti se ne shranjujejo.
+     */
+    public Optional<Posts> get(Integer postId) {
+        if (postId == null) return Optional.empty();
+        if (!enabled) return Optional.ofNullable(load(postId));
+        // nalaganje iz baze teče izven zaklepa mape (glej CallerRunsLoader); če med njim pride invalidate
+        // za isti ključ, se odstrani še nedokončan vnos, tako da star posnetek ne ostane v cachu
+        Posts snapshot = CallerRunsLoader.get(cache, postId, this::load);
+        return Optional.ofNullable(snapshot).map(PostCache::copyOf);
+    }
+
+    /**
+     * Označi post kot spremenjen: obvesti vse replike (ob commitu trenutne transakcije) in ga po commitu
+     * odstrani iz lokalnega cacha. Brez aktivne transakcije se oboje zgodi takoj.
+     */
+    public void evict(Integer postId) {
+        if (postId == null) return;
+        notifyReplicas(String.valueOf(postId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateLocal(postId);
+                }
+            });
+        } else {
+            invalidateLocal(postId);
+        }
+    }
+
+    private void invalidateLocal(Integer postId) {
+        localInvalidations.increment();
+        cache.synchronous().invalidate(postId);
+    }
+
+    private void notifyReplicas(String payload) {
+        if (!enabled) return;
+        try {
+            // pg_notify je transakcijski: v transakciji se dostavi ob commitu, ob rollbacku nikoli
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, payload);
+        } catch (Exception e) {
+            // lokalni evict se vseeno zgodi; druge replike osveži TTL
+            System.err.println("[PostCache] pg_notify failed -> " + e.getMessage());
+        }
+    }
+
+    private Posts load(Integer postId) {
+        return readTx.execute(status -> postsRepo.findById(postId).map(PostCache::copyOf).orElse(null));
+    }
+
+    // kopija brez Hibernate proxyjev in lenih kolekcij, zato je uporabna tudi izven seje
+    static Posts copyOf(Posts p) {
+        Hibernate.initialize(p.getTags());
+        Hibernate.initialize(p.getPreviewImages());
+        Hibernate.initialize(p.getPreviewVariants());
+        Posts c = new Posts();
+        c.setId(p.getId());
+        c.setTitle(p.getTitle());
+        c.setSellerId(p.getSellerId());
+        c.setDescription(p.getDescription());
+        c.setTags(p.getTags() == null ? null : new HashSet<>(p.getTags()));
+        c.setAzBlobName(p.getAzBlobName());
+        c.setFileVersion(p.getFileVersion());
+        c.setPreviewImages(p.getPreviewImages() == null ? null : new ArrayList<>(p.getPreviewImages()));
+        c.setPreviewVariants(p.getPreviewVariants() == null ? null : new HashSet<>(p.getPreviewVariants()));
+        c.setCopies(p.getCopies());
+        c.setPriceUSD(p.getPriceUSD());
+        c.setUploadTime(p.getUploadTime());
+        c.setLastTimeModified(p.getLastTimeModified());
+        c.setStatus(p.getStatus());
+        c.setBuyerCount(p.getBuyerCount());
+        return c;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(jdbcUrl, username, password)) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN \"" + channel.replace("\"", "\"\"") + "\"");
+                }
+                // med prekinjeno povezavo smo lahko zamudili obvestila
+                cache.synchronous().invalidateAll();
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications((int) pollMillis);
+                    if (notifications == null) continue;
+                    for (PGNotification n : notifications) onNotification(n.getParameter());
+                }
+            } catch (SQLException e) {
+                if (!running) return;
+                listenerReconnects.increment();
+                System.err.println("[PostCache] LISTEN connection lost -> " + e.getMessage());
+                cache.synchronous().invalidateAll();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(reconnectMillis);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void onNotification(String payload) {
+        remoteInvalidations.increment();
+        if (payload == null || ALL.equals(payload)) {
+            cache.synchronous().invalidateAll();
+            return;
+        }
+        try {
+            cache.synchronous().invalidate(Integer.valueOf(payload));
+        } catch (NumberFormatException e) {
+            cache.synchronous().invalidateAll();
+        }
+    }
+
+    public Cache<Integer, Posts> getCache() { return cache.synchronous(); }
+
+    public long getLocalInvalidationCount() { return localInvalidations.sum(); }
+
+    public long getRemoteInvalidationCount() { return remoteInvalidations.sum(); }
+
+    public long getListenerReconnectCount() { return listenerReconnects.sum(); }
+}
@@ -0,0 +1,57 @@
+package com.slopeoasis.post.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+import com.slopeoasis.post.entity.Posts;
+
+/**
+ * Keyset position in a post listing ordered by (uploadTime DESC, id DESC).
+ * Clients only ever see the opaque, URL-safe token produced by {@link #encode()}.
+ */
+public final class PostCursor {
+
+    // Sentinel used for the first page: sorts after every real row
+    private static final PostCursor START = new PostCursor(LocalDateTime.of(9999, 12, 31, 23, 59), Integer.MAX_VALUE);
+
+    private final LocalDateTime uploadTime;
+    private final Integer id;
+
+    private PostCursor(LocalDateTime uploadTime, Integer id) {
+        this.uploadTime = uploadTime;
+        this.id = id;
+    }
+
+    public static PostCursor start() {
+        return START;
+    }
+
+    public static PostCursor after(Posts post) {
+        return new PostCursor(post.getUploadTime(), post.getId());
+    }
+
+    //prazen token pomeni prvo stran, neveljaven token vrne empty
+    public static Optional<PostCursor> decode(String token) {
+        if (token == null || token.isBlank()) return Optional.of(START);
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            if (sep < 0) return Optional.empty();
+            return Optional.of(new PostCursor(LocalDateTime.parse(raw.substring(0, sep)),
+                    Integer.valueOf(raw.substring(sep + 1))));
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    public String encode() {
+        String raw = uploadTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getUploadTime() { return uploadTime; }
+
+    public Integer getId() { return id; }
+}
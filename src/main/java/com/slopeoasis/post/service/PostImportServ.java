@@ -0,0 +1,252 @@
+package com.slopeoasis.post.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slopeoasis.post.entity.Posts;
+import com.slopeoasis.post.entity.Posts.Status;
+import com.slopeoasis.post.entity.Posts.Tag;
+import com.slopeoasis.post.repository.PreviewJobRepo;
+import com.slopeoasis.post.repository.StoredBlobRepo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Bulk uvoz postov iz NDJSON toka (ena vrstica = en post, bloby so že naloženi).
+ * Vrstice se berejo sproti in zapisujejo v kosih (import.chunk-size), vsak kos v svoji transakciji:
+ * ID-ji pridejo iz pooled sekvence, inserti v posts, post_tags in post_preview_images gredo v JDBC batchih.
+ * Imena blobov (azBlobName, previewImages) morajo biti zabeležena v stored_blobs (neznana se poiščejo v storage-u)
+ * in last prodajalca; vsak uvožen post zanje prevzame reference kot PUT /posts/{id}/file.
+ * Rezultati vsakega kosa se po commitu takoj predajo klicatelju, ki jih lahko pošlje odjemalcu.
+ */
+@Service
+public class PostImportServ {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final PreviewJobRepo previewJobRepo;
+    private final StoredBlobRepo storedBlobRepo;
+    private final BlobMetadataServ blobMetadataServ;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxLineChars;
+
+    public PostImportServ(PreviewJobRepo previewJobRepo, StoredBlobRepo storedBlobRepo,
+                          BlobMetadataServ blobMetadataServ, ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                          @Value("${import.chunk-size:500}") int chunkSize,
+                          @Value("${import.max-line-chars:65536}") int maxLineChars) {
+        this.previewJobRepo = previewJobRepo;
+        this.storedBlobRepo = storedBlobRepo;
+        this.blobMetadataServ = blobMetadataServ;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxLineChars = maxLineChars;
+    }
+
+    /**
+     * @param onChunk dobi rezultate vsakega zaključenega kosa (urejene po številki vrstice)
+     */
+    public ImportSummary importNdjson(InputStream in, String sellerId, Consumer<List<ImportResult>> onChunk) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        ImportSummary summary = new ImportSummary();
+        List<PendingPost> pending = new ArrayList<>(chunkSize);
+        List<ImportResult> results = new ArrayList<>(chunkSize);
+
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) continue;
+            try {
+                if (line.length() > maxLineChars) throw new IllegalArgumentException("Line too long");
+                pending.add(new PendingPost(lineNo, toPost(objectMapper.readValue(line, ImportLine.class), sellerId)));
+            } catch (JsonProcessingException e) {
+                results.add(ImportResult.failed(lineNo, "Invalid JSON"));
+            } catch (IllegalArgumentException e) {
+                results.add(ImportResult.failed(lineNo, e.getMessage()));
+            }
+            if (pending.size() + results.size() >= chunkSize) {
+                flush(pending, results, sellerId, summary, onChunk);
+            }
+        }
+        flush(pending, results, sellerId, summary, onChunk);
+        return summary;
+    }
+
+    private void flush(List<PendingPost> pending, List<ImportResult> results, String sellerId, ImportSummary summary,
+                       Consumer<List<ImportResult>> onChunk) {
+        if (pending.isEmpty() && results.isEmpty()) return;
+
+        // imena blobov pošlje odjemalec: brez preverjanja bi lahko prodajalec uvozil post s tujo (plačljivo) datoteko
+        Set<String> names = new HashSet<>();
+        for (PendingPost p : pending) names.addAll(blobNames(p.post));
+        Set<String> allowed = names.isEmpty() ? Set.of() : assignableBlobs(names, sellerId);
+        List<PendingPost> toInsert = new ArrayList<>(pending.size());
+        for (PendingPost p : pending) {
+            if (!allowed.contains(p.post.getAzBlobName())) {
+                results.add(ImportResult.failed(p.line, "azBlobName not found or not allowed"));
+            } else if (!allowed.containsAll(p.post.getPreviewImages())) {
+                results.add(ImportResult.failed(p.line, "previewImages not found or not allowed"));
+            } else {
+                toInsert.add(p);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // ena referenca na pojavitev bloba (glavna datoteka in vsaka preview slika), sprosti jo urejanje ali zamenjava.
+                // en UPDATE za vsa imena z enakim številom pojavitev; pred persist, ker native query sproži flush
+                Map<String, Integer> refs = new HashMap<>();
+                for (PendingPost p : toInsert) {
+                    for (String blobName : blobNames(p.post)) refs.merge(blobName, 1, Integer::sum);
+                }
+                Map<Integer, List<String>> byRefs = new HashMap<>();
+                refs.forEach((blobName, n) -> byRefs.computeIfAbsent(n, k -> new ArrayList<>()).add(blobName));
+                byRefs.forEach((n, blobNames) -> {
+                    if (storedBlobRepo.claimAll(blobNames, sellerId, n) != blobNames.size()) {
+                        throw new IllegalStateException("Blob was removed during import");
+                    }
+                });
+                for (PendingPost p : toInsert) entityManager.persist(p.post);
+                entityManager.flush();
+                // posli za pomanjšane preview slike, en INSERT za cel kos
+                List<Integer> withPreviews = new ArrayList<>();
+                for (PendingPost p : toInsert) {
+                    List<String> previews = p.post.getPreviewImages();
+                    if (previews != null && !previews.isEmpty()) withPreviews.add(p.post.getId());
+                }
+                if (!withPreviews.isEmpty()) previewJobRepo.enqueueForPosts(withPreviews);
+                entityManager.clear();
+            });
+            for (PendingPost p : toInsert) results.add(ImportResult.created(p.line, p.post.getId()));
+        } catch (RuntimeException e) {
+            // razveljavljene entitete ne smejo ostati v persistence contextu (OSIV), sicer bi jih naslednji flush ponovil
+            entityManager.clear();
+            String reason = "Chunk rolled back: " + rootMessage(e);
+            for (PendingPost p : toInsert) results.add(ImportResult.failed(p.line, reason));
+        }
+
+        results.sort(Comparator.comparingInt(ImportResult::line));
+        for (ImportResult r : results) summary.count(r);
+        onChunk.accept(new ArrayList<>(results));
+        pending.clear();
+        results.clear();
+    }
+
+    //zabeležena imena, ki jih prodajalec sme uporabiti; neznana se najprej poiščejo v storage-u (in zabeležijo)
+    private Set<String> assignableBlobs(Set<String> names, String sellerId) {
+        Set<String> recorded = new HashSet<>();
+        recorded.addAll(storedBlobRepo.findRecordedNames(names));
+        for (String name : names) {
+            if (!recorded.contains(name)) blobMetadataServ.get(name);
+        }
+        return new HashSet<>(storedBlobRepo.findAssignable(names, sellerId));
+    }
+
+    private static List<String> blobNames(Posts p) {
+        List<String> names = new ArrayList<>(p.getPreviewImages());
+        names.add(p.getAzBlobName());
+        return names;
+    }
+
+    private static Posts toPost(ImportLine l, String sellerId) {
+        if (l.title == null || l.title.isBlank()) throw new IllegalArgumentException("title is required");
+        if (l.description == null) throw new IllegalArgumentException("description is required");
+        if (l.priceUSD == null || l.priceUSD < 0) throw new IllegalArgumentException("Invalid priceUSD");
+        if (l.copies == null || l.copies < -1) throw new IllegalArgumentException("Invalid copies");
+        if (l.azBlobName == null || l.azBlobName.isBlank()) throw new IllegalArgumentException("azBlobName is required");
+        if (l.previewImages != null && l.previewImages.stream().anyMatch(n -> n == null || n.isBlank())) {
+            throw new IllegalArgumentException("Invalid previewImages");
+        }
+
+        Set<Tag> tags = EnumSet.noneOf(Tag.class);
+        if (l.tags != null) {
+            for (String t : l.tags) {
+                try {
+                    tags.add(Tag.valueOf(t));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Invalid tag value");
+                }
+            }
+        }
+        Status status;
+        try {
+            status = l.status == null ? Status.ACTIVE : Status.valueOf(l.status);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid status");
+        }
+
+        Posts p = new Posts();
+        p.setTitle(l.title);
+        p.setSellerId(sellerId);
+        p.setDescription(l.description);
+        p.setTags(new HashSet<>(tags));
+        p.setAzBlobName(l.azBlobName);
+        p.setPreviewImages(l.previewImages == null ? new ArrayList<>() : new ArrayList<>(l.previewImages));
+        p.setBuyers(new HashSet<>());
+        p.setPriceUSD(l.priceUSD);
+        p.setCopies(l.copies);
+        p.setStatus(status);
+        p.setFileVersion(1);
+        return p;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable t = e;
+        while (t.getCause() != null) t = t.getCause();
+        return t.getMessage();
+    }
+
+    private record PendingPost(int line, Posts post) {}
+
+    // Ena vrstica NDJSON vhoda
+    public static class ImportLine {
+        public String title;
+        public String description;
+        public Double priceUSD;
+        public Integer copies;
+        public List<String> tags;
+        public String status;
+        public String azBlobName;
+        public List<String> previewImages;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ImportResult(int line, String status, Integer id, String error) {
+        static ImportResult created(int line, Integer id) { return new ImportResult(line, "CREATED", id, null); }
+        static ImportResult failed(int line, String error) { return new ImportResult(line, "FAILED", null, error); }
+    }
+
+    public static class ImportSummary {
+        public int created;
+        public int failed;
+
+        void count(ImportResult r) {
+            if (r.id() != null) created++; else failed++;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.slopeoasis.post.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.util.HtmlUtils;
+
+import com.slopeoasis.post.config.SchemaInitializer;
+import com.slopeoasis.post.entity.Posts;
+import com.slopeoasis.post.repository.PostsRepo;
+import com.slopeoasis.post.repository.PostsRepo.SearchRow;
+import com.slopeoasis.post.service.PostsServ.CursorPage;
+import com.slopeoasis.post.service.PostsServ.PostSummary;
+
+/**
+ * Rangirano full-text iskanje po naslovu in opisu (samo ACTIVE posti) nad posts.search_vector.
+ * - vsaka beseda poizvedbe se išče kot predpona (bes:*), vse besede morajo biti prisotne
+ * - zadetek v naslovu šteje več kot v opisu (utež A proti B)
+ * - highlight naslova in odlomek opisa pripravi Postgres (ts_headline), tukaj se besedilo HTML-escapa,
+ *   ujemanja pa ovijejo v <mark></mark>
+ * - paginacija s kurzorjem po (rank, id), glej SearchCursor
+ */
+@Service
+public class PostSearchServ {
+
+    // ts_headline označi ujemanja s temi znaki (v naslovih/opisih se ne pojavijo), ker ga potem escapamo sami
+    private static final String START_SEL = "\u0001";
+    private static final String STOP_SEL = "\u0002";
+    private static final String TITLE_OPTIONS = "HighlightAll=true, StartSel=" + START_SEL + ", StopSel=" + STOP_SEL;
+    private static final String SNIPPET_OPTIONS = "MaxFragments=2, MaxWords=25, MinWords=8, FragmentDelimiter=\" … \", " +
+            "StartSel=" + START_SEL + ", StopSel=" + STOP_SEL;
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private final PostsRepo postsRepo;
+    private final PostsServ postsServ;
+    private final SchemaInitializer schema;
+    private final int maxTerms;
+    private final int maxPageSize;
+
+    public PostSearchServ(PostsRepo postsRepo, PostsServ postsServ, SchemaInitializer schema,
+                          @Value("${search.max-terms:8}") int maxTerms,
+                          @Value("${search.max-page-size:50}") int maxPageSize) {
+        this.postsRepo = postsRepo;
+        this.postsServ = postsServ;
+        this.schema = schema;
+        this.maxTerms = Math.max(1, maxTerms);
+        this.maxPageSize = Math.max(1, maxPageSize);
+    }
+
+    public boolean isAvailable() {
+        return schema.isFullTextAvailable();
+    }
+
+    /**
+     * Besedilo iskalnika -> tsquery ("lesen & stol:*" ipd.): samo črke in številke, ostalo loči besede,
+     * zato uporabnik ne more poslati tsquery operatorjev. Empty, če ne ostane nobena beseda.
+     */
+    public Optional<String> toTsQuery(String text) {
+        if (text == null) return Optional.empty();
+        Set<String> terms = new LinkedHashSet<>();
+        Matcher m = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        while (m.find() && terms.size() < maxTerms) terms.add(m.group() + ":*");
+        if (terms.isEmpty()) return Optional.empty();
+        return Optional.of(String.join(" & ", terms));
+    }
+
+    /**
+     * Empty, če je kurzor neveljaven. Poizvedba brez besed vrne prazno stran.
+     * Ni readOnly: summarize po potrebi ustvari manjkajoče agregate ocen.
+     */
+    @Transactional
+    public Optional<CursorPage<SearchHit>> search(String text, String cursor, int size) {
+        Optional<SearchCursor> position = SearchCursor.decode(cursor);
+        if (position.isEmpty()) return Optional.empty();
+        Optional<String> tsQuery = toTsQuery(text);
+        if (tsQuery.isEmpty()) return Optional.of(new CursorPage<>(List.of(), null));
+
+        int limit = Math.min(Math.max(1, size), maxPageSize);
+        SearchCursor c = position.get();
+        List<SearchRow> rows = postsRepo.searchFullText(tsQuery.get(), c.getRank(), c.getId(), limit + 1,
+                TITLE_OPTIONS, SNIPPET_OPTIONS);
+        String next = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            SearchRow last = rows.get(limit - 1);
+            next = SearchCursor.after(last.getRank(), last.getId()).encode();
+        }
+        if (rows.isEmpty()) return Optional.of(new CursorPage<>(List.of(), null));
+
+        // posti za kartice v enem queryju, nato v vrstnem redu zadetkov
+        List<Integer> ids = new ArrayList<>(rows.size());
+        for (SearchRow r : rows) ids.add(r.getId());
+        Map<Integer, Posts> byId = new HashMap<>();
+        postsRepo.findAllById(ids).forEach(p -> byId.put(p.getId(), p));
+
+        List<Posts> posts = new ArrayList<>(rows.size());
+        List<SearchRow> found = new ArrayList<>(rows.size());
+        for (SearchRow r : rows) {
+            Posts p = byId.get(r.getId());
+            if (p == null) continue;
+            posts.add(p);
+            found.add(r);
+        }
+        List<PostSummary> summaries = postsServ.summarize(posts);
+
+        List<SearchHit> hits = new ArrayList<>(summaries.size());
+        for (int i = 0; i < summaries.size(); i++) {
+            SearchRow r = found.get(i);
+            hits.add(new SearchHit(summaries.get(i), markup(r.getTitleHighlight()), markup(r.getSnippet()), r.getRank()));
+        }
+        return Optional.of(new CursorPage<>(hits, next));
+    }
+
+    // escapa HTML iz uporabniškega besedila in šele nato vstavi oznake ujemanj
+    static String markup(String headline) {
+        if (headline == null) return null;
+        return HtmlUtils.htmlEscape(headline)
+                .replace(START_SEL, "<mark>")
+                .replace(STOP_SEL, "</mark>");
+    }
+
+    // DTO for full-text search results
+    public static class SearchHit {
+        public final PostSummary post;
+        // naslov z <mark> okoli ujemanj (HTML-escapan)
+        public final String titleHighlight;
+        // odlomek opisa okoli ujemanj (HTML-escapan, z <mark>); začetek opisa, če se ujema samo naslov
+        public final String snippet;
+        public final float rank;
+        public SearchHit(PostSummary post, String titleHighlight, String snippet, float rank) {
+            this.post = post;
+            this.titleHighlight = titleHighlight;
+            this.snippet = snippet;
+            this.rank = rank;
+        }
+    }
+}
@@ -1,27 +1,115 @@
 package com.slopeoasis.post.service;
 import jakarta.transaction.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import com.slopeoasis.post.repository.PostsRepo;
-import com.slopeoasis.post.entity.Posts;
 
 @Service
 public class PostsIntServ {
+    // velikost enega JDBC batcha pri batch grant-access
+    private static final int INSERT_BATCH_SIZE = 500;
+    private static final String INSERT_BUYER =
+            "INSERT INTO post_buyers (post_id, buyer_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
     private final PostsRepo postsRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final PostCache postCache;
 
-    public PostsIntServ(PostsRepo postsRepo) {
+    public PostsIntServ(PostsRepo postsRepo, JdbcTemplate jdbcTemplate, PostCache postCache) {
         this.postsRepo = postsRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.postCache = postCache;
     }
 
     @Transactional
     public void addBuyer(Integer postId, String buyerClerkId) {
-        Posts post = postsRepo.findById(postId)
-            .orElseThrow(() -> new IllegalStateException("Post not found"));
+        if (!postsRepo.existsById(postId)) {
+            throw new IllegalStateException("Post not found");
+        }
+
+        // idempotent: če kupec že ima dostop, insert ne naredi nič
+        // nov kupec poveča buyer_count (v odgovoru) -> nov Last-Modified/ETag
+        if (postsRepo.insertBuyerIfAbsent(postId, buyerClerkId) > 0) {
+            postsRepo.addBuyerCount(postId, 1);
+            postCache.evict(postId);
+        }
+    }
+
+    /**
+     * Več grantov v eni transakciji: obstoj postov se preveri z enim queryjem, kupci se vstavijo
+     * z JDBC batchi (INSERT ... ON CONFLICT DO NOTHING). Rezultati so v enakem vrstnem redu kot vhod.
+     */
+    @Transactional
+    public List<GrantResult> addBuyers(List<Grant> grants) {
+        GrantStatus[] statuses = new GrantStatus[grants.size()];
+        Set<Integer> postIds = new HashSet<>();
+        for (int i = 0; i < grants.size(); i++) {
+            Grant g = grants.get(i);
+            if (g == null || g.postId() == null || g.buyerClerkId() == null || g.buyerClerkId().isBlank()) {
+                statuses[i] = GrantStatus.INVALID;
+            } else {
+                postIds.add(g.postId());
+            }
+        }
 
-        if (post.getBuyers().contains(buyerClerkId)) {
-            return; // already has access
+        Set<Integer> existing = postIds.isEmpty() ? Set.of() : new HashSet<>(postsRepo.findExistingIds(postIds));
+        List<Integer> toInsert = new ArrayList<>();
+        for (int i = 0; i < grants.size(); i++) {
+            if (statuses[i] != null) continue;
+            if (existing.contains(grants.get(i).postId())) {
+                toInsert.add(i);
+            } else {
+                statuses[i] = GrantStatus.POST_NOT_FOUND;
+            }
         }
 
-        post.getBuyers().add(buyerClerkId);
-        postsRepo.save(post);
+        // update count 1 = nov kupec, 0 = dostop je že obstajal (tudi podvojen element v istem batchu)
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_BUYER, toInsert, INSERT_BATCH_SIZE, (ps, idx) -> {
+            ps.setInt(1, grants.get(idx).postId());
+            ps.setString(2, grants.get(idx).buyerClerkId());
+        });
+        int n = 0;
+        Map<Integer, Integer> granted = new HashMap<>();
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                int idx = toInsert.get(n++);
+                statuses[idx] = count == 0 ? GrantStatus.ALREADY_GRANTED : GrantStatus.GRANTED;
+                if (count != 0) granted.merge(grants.get(idx).postId(), 1, Integer::sum);
+            }
+        }
+        // samo posti z novimi kupci: buyer_count in nov last_time_modified (buyerCount v ETag/Last-Modified)
+        for (Map.Entry<Integer, Integer> e : granted.entrySet()) {
+            postsRepo.addBuyerCount(e.getKey(), e.getValue());
+            postCache.evict(e.getKey());
+        }
+
+        List<GrantResult> results = new ArrayList<>(grants.size());
+        for (int i = 0; i < grants.size(); i++) {
+            Grant g = grants.get(i);
+            results.add(g == null
+                    ? new GrantResult(null, null, null, statuses[i])
+                    : new GrantResult(g.postId(), g.buyerClerkId(), g.paymentIntentId(), statuses[i]));
+        }
+        return results;
     }
+
+    public enum GrantStatus {
+        GRANTED,
+        ALREADY_GRANTED,
+        POST_NOT_FOUND,
+        INVALID
+    }
+
+    public record Grant(Integer postId, String buyerClerkId, UUID paymentIntentId) {}
+
+    public record GrantResult(Integer postId, String buyerClerkId, UUID paymentIntentId, GrantStatus status) {}
 }
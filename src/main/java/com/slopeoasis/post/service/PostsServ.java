@@ -1,35 +1,80 @@
 package com.slopeoasis.post.service;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.slopeoasis.post.config.SchemaInitializer;
 import com.slopeoasis.post.entity.Posts;
+import com.slopeoasis.post.entity.Posts.PreviewSize;
 import com.slopeoasis.post.entity.Posts.Status;
 import com.slopeoasis.post.entity.Posts.Tag;
+import com.slopeoasis.post.entity.PreviewVariant;
 import com.slopeoasis.post.entity.Rating;
+import com.slopeoasis.post.entity.RatingStats;
 import com.slopeoasis.post.repository.PostsRepo;
+import com.slopeoasis.post.repository.PreviewJobRepo;
 import com.slopeoasis.post.repository.RatingRepo;
+import com.slopeoasis.post.repository.RatingStatsRepo;
+import com.slopeoasis.post.repository.StoredBlobRepo;
 
 @Service
 public class PostsServ {
+    //stabilen vrstni red za offset paginacijo, enak kot pri keyset (cursor) načinu
+    public static final Sort LISTING_SORT = Sort.by(Sort.Direction.DESC, "uploadTime", "id");
+
     private final PostsRepo postsRepo;
     private final RatingRepo ratingRepo;
-
-    public PostsServ(PostsRepo postsRepo, RatingRepo ratingRepo) {
+    private final RatingStatsRepo ratingStatsRepo;
+    private final SchemaInitializer schema;
+    private final PostCache postCache;
+    private final PreviewJobRepo previewJobRepo;
+    private final StoredBlobRepo storedBlobRepo;
+    private final BlobUploadPipeline uploadPipeline;
+
+    public PostsServ(PostsRepo postsRepo, RatingRepo ratingRepo, RatingStatsRepo ratingStatsRepo, SchemaInitializer schema,
+                     PostCache postCache, PreviewJobRepo previewJobRepo, StoredBlobRepo storedBlobRepo,
+                     BlobUploadPipeline uploadPipeline) {
         this.postsRepo = postsRepo;
         this.ratingRepo = ratingRepo;
+        this.ratingStatsRepo = ratingStatsRepo;
+        this.schema = schema;
+        this.postCache = postCache;
+        this.previewJobRepo = previewJobRepo;
+        this.storedBlobRepo = storedBlobRepo;
+        this.uploadPipeline = uploadPipeline;
     }
 
-    //Create new post (default ACTIVE)
+    //Create new post (default ACTIVE); za preview slike se v isti transakciji dodajo posli za pomanjšane različice
+    @Transactional
     public Posts createPost(Posts post) {
         if (post.getBuyers() == null) post.setBuyers(new java.util.HashSet<>());
         if (post.getTags() == null) post.setTags(new java.util.HashSet<>());
         if (post.getStatus() == null) post.setStatus(Status.ACTIVE);
         if (post.getFileVersion() == null) post.setFileVersion(1);
-        return postsRepo.save(post);
+        Posts saved = postsRepo.saveAndFlush(post);
+        if (saved.getPreviewImages() != null && !saved.getPreviewImages().isEmpty()) {
+            previewJobRepo.enqueueForPosts(List.of(saved.getId()));
+        }
+        return saved;
     }
 
     //Change post status (seller lahko oznaci kot ACTIVE/DISABLED, v primeru ko jo "izbriše" se spremeni le status na USER_DELETED)
@@ -40,12 +85,29 @@ public class PostsServ {
         Posts p = opt.get();
         if (!p.getSellerId().equals(sellerId)) return Optional.empty();
         p.setStatus(newStatus);
+        postCache.evict(postId);
         return Optional.of(postsRepo.save(p));
     }
 
-    //Spremeni osnovne podatke posta (title, description, tags, previewImages, priceUSD, copies)
+    /**
+     * Spremeni osnovne podatke posta (title, description, tags, previewImages, priceUSD, copies).
+     * Preview slike so imena blobov, ki jih je poslal odjemalec: nova morajo biti prodajalčeva (glej claimBlobs).
+     * @throws BlobNotAllowedException če nova preview slika pripada drugemu prodajalcu ali ne obstaja
+     */
     @Transactional
     public Optional<Posts> editPost(Integer postId, String sellerId, Posts updates) {
+        return editPost(postId, sellerId, updates, true);
+    }
+
+    //Zamenja preview slike z blobi, ki jih je pravkar naložil prodajalec (upload že drži njihove reference)
+    @Transactional
+    public Optional<Posts> replacePreviewImages(Integer postId, String sellerId, List<String> uploadedBlobNames) {
+        Posts updates = new Posts();
+        updates.setPreviewImages(uploadedBlobNames);
+        return editPost(postId, sellerId, updates, false);
+    }
+
+    private Optional<Posts> editPost(Integer postId, String sellerId, Posts updates, boolean claimPreviews) {
         Optional<Posts> opt = postsRepo.findById(postId);
         if (opt.isEmpty()) return Optional.empty();
         Posts p = opt.get();
@@ -54,23 +116,159 @@ public class PostsServ {
         if (updates.getTitle() != null) p.setTitle(updates.getTitle());
         if (updates.getDescription() != null) p.setDescription(updates.getDescription());
         if (updates.getTags() != null && !updates.getTags().isEmpty()) p.setTags(updates.getTags());
-        if (updates.getPreviewImages() != null) p.setPreviewImages(updates.getPreviewImages());
+        List<String> oldPreviews = p.getPreviewImages() == null ? List.of() : new ArrayList<>(p.getPreviewImages());
+        if (updates.getPreviewImages() != null) {
+            if (claimPreviews) {
+                claimBlobs(sellerId, updates.getPreviewImages(), oldPreviews);
+                releaseAfterCommit(minus(oldPreviews, updates.getPreviewImages()));
+            } else {
+                // vsaka nova pojavitev že ima referenco uploada, stare se sprostijo vse
+                releaseAfterCommit(oldPreviews);
+            }
+            p.setPreviewImages(updates.getPreviewImages());
+        }
         if (updates.getPriceUSD() != null) p.setPriceUSD(updates.getPriceUSD());
         if (updates.getCopies() != null) p.setCopies(updates.getCopies());
 
-        return Optional.of(postsRepo.save(p));
+        postCache.evict(postId);
+        if (updates.getPreviewImages() == null) return Optional.of(postsRepo.save(p));
+
+        // različice odstranjenih preview slik gredo stran (tudi iz storage-a), za nove se dodajo posli
+        List<String> previews = p.getPreviewImages();
+        List<String> removedVariants = new ArrayList<>();
+        p.getPreviewVariants().removeIf(v -> {
+            if (previews.contains(v.getPreviewBlobName())) return false;
+            if (!v.getBlobName().equals(v.getPreviewBlobName())) removedVariants.add(v.getBlobName());
+            return true;
+        });
+        releaseAfterCommit(removedVariants);
+        // sprememba samo zbirk preview slik/različic ne posodobi vrstice posts (@UpdateTimestamp), ETag pa mora biti nov
+        p.setLastTimeModified(LocalDateTime.now());
+        Posts saved = postsRepo.saveAndFlush(p);
+        previewJobRepo.deleteStale(postId);
+        if (!previews.isEmpty()) previewJobRepo.enqueueForPosts(List.of(postId));
+        return Optional.of(saved);
     }
 
-    //Posodobi glavno datoteko (poveča fileVersion)
+    /**
+     * Zapiše pomanjšane različice ene preview slike (PreviewThumbnailServ) in zamenja morebitne prejšnje.
+     * Spremeni lastTimeModified, da se spremeni tudi ETag posta.
+     * @return imena blobov različic, ki jih post ne uporablja (zamenjane; ali vse nove, ko post preview slike nima več)
+     */
+    @Transactional
+    public List<String> recordPreviewVariants(Integer postId, String previewBlobName, List<PreviewVariant> variants) {
+        List<String> unused = new ArrayList<>();
+        Optional<Posts> opt = postsRepo.findById(postId);
+        if (opt.isEmpty() || opt.get().getPreviewImages() == null || !opt.get().getPreviewImages().contains(previewBlobName)) {
+            for (PreviewVariant v : variants) {
+                if (!v.getBlobName().equals(previewBlobName)) unused.add(v.getBlobName());
+            }
+            return unused;
+        }
+        Posts p = opt.get();
+        Set<String> kept = new HashSet<>();
+        for (PreviewVariant v : variants) kept.add(v.getBlobName());
+        Iterator<PreviewVariant> it = p.getPreviewVariants().iterator();
+        while (it.hasNext()) {
+            PreviewVariant old = it.next();
+            if (!old.getPreviewBlobName().equals(previewBlobName)) continue;
+            it.remove();
+            if (!old.getBlobName().equals(previewBlobName) && !kept.contains(old.getBlobName())) unused.add(old.getBlobName());
+        }
+        p.getPreviewVariants().addAll(variants);
+        p.setLastTimeModified(LocalDateTime.now());
+        postCache.evict(postId);
+        postsRepo.save(p);
+        return unused;
+    }
+
+    public boolean hasPreviewImage(Integer postId, String previewBlobName) {
+        return postsRepo.existsPreviewImage(postId, previewBlobName);
+    }
+
+    /**
+     * Posodobi glavno datoteko z blobom, katerega ime je poslal odjemalec (poveča fileVersion, razen ko je vsebina enaka).
+     * @throws BlobNotAllowedException če blob pripada drugemu prodajalcu ali ne obstaja
+     */
     @Transactional
     public Optional<Posts> updatePostFile(Integer postId, String sellerId, String newBlobName) {
+        return replacePostFile(postId, sellerId, newBlobName, true).map(r -> r.post);
+    }
+
+    /**
+     * Zamenja glavno datoteko posta z blobom, ki ga je pravkar naložil prodajalec, in poveča fileVersion.
+     * Ista datoteka (isti blob ali zabeležena enaka vsebina, npr. ponovni upload nespremenjene datoteke) posta
+     * ne spremeni: kupci ne dobijo "nove verzije". Referenca prejšnjega bloba se po commitu sprosti.
+     * @return empty, če posta ni ali ni od prodajalca; replaced=false, ko je post ostal na obstoječem blobu
+     *         (klicatelj takrat sprosti newBlobName)
+     */
+    @Transactional
+    public Optional<FileReplacement> replacePostFile(Integer postId, String sellerId, String newBlobName) {
+        return replacePostFile(postId, sellerId, newBlobName, false);
+    }
+
+    private Optional<FileReplacement> replacePostFile(Integer postId, String sellerId, String newBlobName, boolean claim) {
         Optional<Posts> opt = postsRepo.findById(postId);
         if (opt.isEmpty()) return Optional.empty();
         Posts p = opt.get();
         if (!p.getSellerId().equals(sellerId)) return Optional.empty();
+        String current = p.getAzBlobName();
+        // najprej lastništvo, da odgovor ne razkrije, ali ima tuj blob enako vsebino
+        if (claim && !newBlobName.equals(current) && !storedBlobRepo.isAssignable(newBlobName, sellerId)) {
+            throw new BlobNotAllowedException(newBlobName);
+        }
+        if (current != null && (current.equals(newBlobName) || storedBlobRepo.hasSameContent(current, newBlobName))) {
+            return Optional.of(new FileReplacement(p, false));
+        }
+        if (claim) claimBlobs(sellerId, List.of(newBlobName), List.of());
         p.setAzBlobName(newBlobName);
         p.setFileVersion(p.getFileVersion() + 1);
-        return Optional.of(postsRepo.save(p));
+        postCache.evict(postId);
+        if (current != null) releaseAfterCommit(List.of(current));
+        return Optional.of(new FileReplacement(postsRepo.save(p), true));
+    }
+
+    /**
+     * Prevzame referenco za vsako pojavitev bloba v blobNames, ki je ni že v current (ista pojavitev ostane na
+     * isti referenci). Blob, ki ga post še ne uporablja, mora biti zabeležen v stored_blobs in ne sme pripadati
+     * drugemu prodajalcu ali ga uporabljati v njegovem postu; sicer bi lahko prodajalec svoj post preusmeril
+     * na tujo (plačljivo) datoteko. Kliče se v transakciji spremembe posta.
+     * @throws BlobNotAllowedException (transakcija se razveljavi)
+     */
+    public void claimBlobs(String sellerId, List<String> blobNames, List<String> current) {
+        for (String blobName : minus(blobNames, current)) {
+            if (blobName == null || blobName.isBlank()) throw new BlobNotAllowedException(String.valueOf(blobName));
+            boolean known = current.contains(blobName);
+            if (!known && !storedBlobRepo.isAssignable(blobName, sellerId)) throw new BlobNotAllowedException(blobName);
+            // blob, ki ga post že uporablja (podvojena preview slika), je lahko star in brez vrstice
+            if (storedBlobRepo.claim(blobName, sellerId) == 0 && !known) throw new BlobNotAllowedException(blobName);
+        }
+    }
+
+    // po commitu sprosti reference blobov, ki jih post ne uporablja več (v ozadju, po vrnitvi povezave); ob rollbacku ostanejo
+    private void releaseAfterCommit(List<String> blobNames) {
+        if (blobNames.isEmpty()) return;
+        List<String> names = List.copyOf(blobNames);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    uploadPipeline.discardAfterCommit(names);
+                }
+            });
+        } else {
+            uploadPipeline.discard(names);
+        }
+    }
+
+    // pojavitve iz a, ki jih ni v b (vsaka pojavitev v b "porabi" eno v a)
+    private static List<String> minus(List<String> a, List<String> b) {
+        List<String> rest = new ArrayList<>(b);
+        List<String> out = new ArrayList<>();
+        for (String name : a) {
+            if (!rest.remove(name)) out.add(name);
+        }
+        return out;
     }
 
     //Seller's posts (ACTIVE + DISABLED, ne USER_DELETED)
@@ -85,31 +283,43 @@ public class PostsServ {
 
     //Javni po tagu (ACTIVE) za filtriranje
     public java.util.List<Posts> getPostsByTag(Tag tag, Pageable pageable) {
-        return postsRepo.findByTagAndStatusActive(tag, pageable);
+        return getPostsByTags(TagFilter.anyOf(List.of(tag)), pageable);
     }
 
-    //Javni po tagu (ACTIVE) brez pagingiranja - za interno uporabo
-    public java.util.List<Posts> getPostsByTag(Tag tag) {
-        return postsRepo.findByTagAndStatusActive(tag);
+    //Javni po temah/interesih (ACTIVE) – ustreza kateremukoli od podanih tagov, null tagi se ignorirajo
+    public java.util.List<Posts> getPostsByThemes(Tag t1, Tag t2, Tag t3, Pageable pageable) {
+        List<Tag> themes = new ArrayList<>(3);
+        for (Tag t : new Tag[] {t1, t2, t3}) if (t != null) themes.add(t);
+        if (themes.isEmpty()) return List.of();
+        return getPostsByTags(TagFilter.anyOf(themes), pageable);
     }
 
-    //Javni po temah/interesih (ACTIVE) – ustreza kateremukoli od treh tagov
-    public java.util.List<Posts> getPostsByThemes(Tag t1, Tag t2, Tag t3, Pageable pageable) {
-        return postsRepo.findByMultipleTagsActive(t1, t2, t3, pageable);
+    //Javni po filtru tagov (any/all/none nad tag_mask), urejeno po LISTING_SORT
+    public java.util.List<Posts> getPostsByTags(TagFilter filter, Pageable pageable) {
+        if (filter.isUnsatisfiable()) return List.of();
+        return postsRepo.findByTagMaskActive(filter.matchingMasks(), unsorted(pageable));
     }
 
-    //Post info
+    //Post info (posnetek iz PostCache, ni upravljan z JPA - za spremembe uporabi editPost ipd.)
     public Optional<Posts> getPostInfo(Integer postId) {
-        return postsRepo.findById(postId);
+        return postCache.get(postId);
     }
 
-    // Search posts by title (ACTIVE)
+    // Search posts by title (ACTIVE), rangirano preko trigram indeksa, če je na voljo
     public java.util.List<Posts> searchByTitle(String title, Pageable pageable) {
+        if (schema.isTrigramAvailable() && title != null) {
+            String q = title.toLowerCase();
+            return postsRepo.searchTitleRankedActive(q, escapeLike(q), unsorted(pageable));
+        }
         return postsRepo.findByTitleContainingIgnoreCaseAndStatus(title, Status.ACTIVE, pageable);
     }
 
     // Search posts by title (any status) for internal/Azure lookups
     public java.util.List<Posts> searchByTitleAnyStatus(String title, Pageable pageable) {
+        if (schema.isTrigramAvailable() && title != null) {
+            String q = title.toLowerCase();
+            return postsRepo.searchTitleRanked(q, escapeLike(q), unsorted(pageable));
+        }
         return postsRepo.findByTitleContainingIgnoreCase(title, pageable);
     }
 
@@ -123,37 +333,73 @@ public class PostsServ {
         return postsRepo.findByAzBlobNameContainingIgnoreCase(blobName, pageable);
     }
 
-    //Dodaj kupca (idempotentno) in zmanjša število kopij, če je >0. Ni dovoljeno, če je USER_DELETED ali kopij == 0.
-    @Transactional
-    public Optional<Posts> addBuyer(Integer postId, String buyerId) {
-        Optional<Posts> opt = postsRepo.findById(postId);
-        if (opt.isEmpty()) return Optional.empty();
-        Posts p = opt.get();
+    //Keyset (cursor) varianta zgornjih seznamov - cena strani je neodvisna od globine
+    public Optional<CursorPage<Posts>> getPostsBySeller(String sellerId, String cursor, int size) {
+        return seek(cursor, size, (c, limit) -> postsRepo.findBySellerIdExcludingUserDeletedAfter(sellerId, c.getUploadTime(), c.getId(), limit));
+    }
 
-        if (p.getStatus() == Status.USER_DELETED) return Optional.empty();
+    public Optional<CursorPage<Posts>> getPostsByBuyer(String buyerId, String cursor, int size) {
+        return seek(cursor, size, (c, limit) -> postsRepo.findBoughtPostsByBuyerAfter(buyerId, c.getUploadTime(), c.getId(), limit));
+    }
 
-        if (p.getCopies() != null && p.getCopies() == 0) {
-            return Optional.empty(); // out of stock
-        }
+    public Optional<CursorPage<Posts>> getPostsByTag(Tag tag, String cursor, int size) {
+        return getPostsByTags(TagFilter.anyOf(List.of(tag)), cursor, size);
+    }
 
-        if (p.getBuyers() == null) {
-            p.setBuyers(new java.util.HashSet<>());
+    public Optional<CursorPage<Posts>> getPostsByTags(TagFilter filter, String cursor, int size) {
+        if (filter.isUnsatisfiable()) {
+            return PostCursor.decode(cursor).map(c -> new CursorPage<Posts>(List.of(), null));
         }
+        return seek(cursor, size, (c, limit) -> postsRepo.findByTagMaskActiveAfter(
+                filter.matchingMasks(), c.getUploadTime(), c.getId(), limit));
+    }
 
-        // Idempotent add
-        if (!p.getBuyers().contains(buyerId)) {
-            p.getBuyers().add(buyerId);
-            if (p.getCopies() != null && p.getCopies() > 0) {
-                p.setCopies(p.getCopies() - 1);
-            }
-        }
+    public Optional<CursorPage<Posts>> searchByTitle(String title, String cursor, int size) {
+        return seek(cursor, size, (c, limit) -> postsRepo.findByTitleContainingIgnoreCaseAndStatusAfter(title, Status.ACTIVE, c.getUploadTime(), c.getId(), limit));
+    }
 
-        return Optional.of(postsRepo.save(p));
+    public Optional<CursorPage<Posts>> searchByTitleAnyStatus(String title, String cursor, int size) {
+        return seek(cursor, size, (c, limit) -> postsRepo.findByTitleContainingIgnoreCaseAfter(title, c.getUploadTime(), c.getId(), limit));
+    }
+
+    public Optional<CursorPage<Posts>> searchByBlobName(String blobName, String cursor, int size) {
+        return seek(cursor, size, (c, limit) -> postsRepo.findByAzBlobNameContainingIgnoreCaseAndStatusAfter(blobName, Status.ACTIVE, c.getUploadTime(), c.getId(), limit));
+    }
+
+    public Optional<CursorPage<Posts>> searchByBlobNameAnyStatus(String blobName, String cursor, int size) {
+        return seek(cursor, size, (c, limit) -> postsRepo.findByAzBlobNameContainingIgnoreCaseAfter(blobName, c.getUploadTime(), c.getId(), limit));
+    }
+
+    //native poizvedbe imajo svoj ORDER BY, Sort iz Pageable bi ga pokvaril
+    private static Pageable unsorted(Pageable pageable) {
+        return pageable.isPaged() ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()) : pageable;
+    }
+
+    //iskalni niz se obravnava dobesedno, ne kot LIKE vzorec
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    //prebere size+1 vrstic, da vemo ali obstaja naslednja stran; empty pomeni neveljaven cursor
+    private Optional<CursorPage<Posts>> seek(String cursor, int size, java.util.function.BiFunction<PostCursor, Pageable, List<Posts>> query) {
+        Optional<PostCursor> from = PostCursor.decode(cursor);
+        if (from.isEmpty()) return Optional.empty();
+        int limit = Math.max(1, size);
+        List<Posts> rows = query.apply(from.get(), PageRequest.of(0, limit + 1));
+        if (rows.size() <= limit) return Optional.of(new CursorPage<>(rows, null));
+        List<Posts> page = rows.subList(0, limit);
+        return Optional.of(new CursorPage<>(page, PostCursor.after(page.get(limit - 1)).encode()));
+    }
+
+    // Ali ima uporabnik kupljen ta post (EXISTS na (post_id, buyer_id))
+    public boolean isBuyer(Integer postId, String userId) {
+        if (userId == null) return false;
+        return postsRepo.existsBuyer(postId, userId);
     }
 
     // Check availability (copies and status)
     public Optional<Availability> checkAvailability(Integer postId) {
-        Optional<Posts> opt = postsRepo.findById(postId);
+        Optional<Posts> opt = postCache.get(postId);
         if (opt.isEmpty()) return Optional.empty();
         Posts p = opt.get();
         boolean available = p.getStatus() == Status.ACTIVE && (p.getCopies() == null || p.getCopies() > 0 || p.getCopies() == -1);
@@ -164,21 +410,26 @@ public class PostsServ {
     @Transactional
     public boolean submitRating(Integer postId, String buyerId, int ratingValue) {
         if (ratingValue < 1 || ratingValue > 5) return false;
-        Optional<Posts> opt = postsRepo.findById(Math.toIntExact(postId));
-        if (opt.isEmpty()) return false;
-        Posts p = opt.get();
-        if (p.getBuyers() == null || !p.getBuyers().contains(buyerId)) return false;
+        // samo kupci lahko ocenjujejo (EXISTS implicira tudi, da post obstaja)
+        if (!postsRepo.existsBuyer(postId, buyerId)) return false;
+
+        // agregati morajo obstajati preden se ocena spremeni, sicer bi jih seed preštel dvakrat
+        ratingStatsRepo.seedFromRatings(postId);
 
         Optional<Rating> existing = ratingRepo.findByPostIdAndBuyerId(postId, buyerId);
         if (existing.isPresent()) {
             Rating r = existing.get();
+            int previous = r.getRating();
+            if (previous == ratingValue) return true;
             r.setRating(ratingValue);
             ratingRepo.save(r);
+            ratingStatsRepo.applyDelta(postId, ratingValue, previous, 0);
             return true;
         }
 
         Rating r = new Rating(postId, buyerId, ratingValue);
         ratingRepo.save(r);
+        ratingStatsRepo.applyDelta(postId, ratingValue, 0, 1);
         return true;
     }
 
@@ -187,11 +438,79 @@ public class PostsServ {
         return ratingRepo.findByPostId(postId);
     }
 
-    // Get rating summary (avg + count)
+    /**
+     * Seznam postov -> PostSummary s fiksnim številom queryjev ne glede na velikost strani:
+     * tagi in previewImages se naložijo z @BatchSize (en query za vse poste), agregati ocen z enim IN queryjem
+     * (manjkajoči agregati se najprej ustvarijo iz ocen, prav tako za vse naenkrat).
+     * Kolekcije so lene, zato mora biti klic v isti seji kot query za poste (OSIV ali ista transakcija).
+     */
+    @Transactional
+    public List<PostSummary> summarize(List<Posts> posts) {
+        return summarize(posts, null);
+    }
+
+    // previewSize: previewImage v kartici je pomanjšana različica tega razreda (izvirnik, dokler je ni)
+    @Transactional
+    public List<PostSummary> summarize(List<Posts> posts, PreviewSize previewSize) {
+        if (posts.isEmpty()) return List.of();
+        // kolekcije inicializiramo pred queryji za ocene: nativni INSERT spodaj izprazni Hibernatovo
+        // vrsto za batch fetch, potem bi se tagi/previewImages nalagali spet po en post naenkrat
+        List<Integer> ids = new ArrayList<>(posts.size());
+        for (Posts p : posts) {
+            ids.add(p.getId());
+            Hibernate.initialize(p.getTags());
+            Hibernate.initialize(p.getPreviewImages());
+            if (previewSize != null) Hibernate.initialize(p.getPreviewVariants());
+        }
+
+        Map<Integer, RatingStats> stats = new HashMap<>();
+        ratingStatsRepo.findAllById(ids).forEach(rs -> stats.put(rs.getPostId(), rs));
+        if (stats.size() < ids.size()) {
+            Set<Integer> missing = new HashSet<>(ids);
+            missing.removeAll(stats.keySet());
+            if (ratingStatsRepo.seedFromRatings(missing) > 0) {
+                ratingStatsRepo.findAllById(missing).forEach(rs -> stats.put(rs.getPostId(), rs));
+            }
+        }
+
+        List<PostSummary> summaries = new ArrayList<>(posts.size());
+        for (Posts p : posts) {
+            RatingStats rs = stats.get(p.getId());
+            summaries.add(PostSummary.of(p, rs != null ? RatingSummary.of(rs) : RatingSummary.EMPTY, previewSize));
+        }
+        return summaries;
+    }
+
+    @Transactional
+    public Optional<CursorPage<PostSummary>> summarizePage(Optional<CursorPage<Posts>> page) {
+        return summarizePage(page, null);
+    }
+
+    @Transactional
+    public Optional<CursorPage<PostSummary>> summarizePage(Optional<CursorPage<Posts>> page, PreviewSize previewSize) {
+        return page.map(p -> new CursorPage<>(summarize(p.items, previewSize), p.nextCursor));
+    }
+
+    // Get rating summary (avg + count + histogram) iz sprotno vzdrževanih agregatov - en PK lookup
+    @Transactional
     public RatingSummary getRatingSummary(Integer postId) {
-        Double avg = ratingRepo.averageForPost(postId);
-        Long count = ratingRepo.countForPost(postId);
-        return new RatingSummary(avg != null ? avg : 0.0, count != null ? count : 0L);
+        return getRatingStats(postId).map(RatingSummary::of).orElse(RatingSummary.EMPTY);
+    }
+
+    // Agregati ocen (z verzijo za ETag); za post brez vrstice agregatov se ta najprej ustvari, empty samo za neobstoječ post
+    @Transactional
+    public Optional<RatingStats> getRatingStats(Integer postId) {
+        Optional<RatingStats> stats = ratingStatsRepo.findById(postId);
+        if (stats.isEmpty() && ratingStatsRepo.seedFromRatings(postId) > 0) {
+            stats = ratingStatsRepo.findById(postId);
+        }
+        return stats;
+    }
+
+    // Validatorji za pogojni GET posta (ETag/Last-Modified) z enim queryjem, brez posta iz cacha in ocen
+    public Optional<PostVersion> getPostVersion(Integer postId) {
+        return postsRepo.findVersion(postId)
+                .map(v -> new PostVersion(postId, v.getLastModified(), v.getFileVersion(), v.getRatingVersion(), v.getRatingsModified()));
     }
 
     // DTO for availability
@@ -206,13 +525,145 @@ public class PostsServ {
         }
     }
 
+    // DTO for cursor paged listings (nextCursor == null pomeni zadnjo stran)
+    public static class CursorPage<T> {
+        public final List<T> items;
+        public final String nextCursor;
+        public CursorPage(List<T> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    // DTO for list endpoints: brez opisa, kupcev in ostalih polj, samo to, kar potrebuje kartica v seznamu
+    // Ime bloba, ki ga prodajalec ne sme uporabiti v svojem postu (tuj ali neobstoječ blob)
+    public static class BlobNotAllowedException extends RuntimeException {
+        private final String blobName;
+        public BlobNotAllowedException(String blobName) {
+            super("Blob not allowed: " + blobName);
+            this.blobName = blobName;
+        }
+
+        public String getBlobName() { return blobName; }
+    }
+
+    // Rezultat zamenjave glavne datoteke: post in ali je dobil nov blob (false = enaka vsebina, fileVersion ostane)
+    public static class FileReplacement {
+        public final Posts post;
+        public final boolean replaced;
+        public FileReplacement(Posts post, boolean replaced) {
+            this.post = post;
+            this.replaced = replaced;
+        }
+    }
+
+    public static class PostSummary {
+        public final Integer id;
+        public final String title;
+        public final Double priceUSD;
+        // prva preview slika ali null
+        public final String previewImage;
+        public final Set<Tag> tags;
+        public final RatingSummary ratingSummary;
+        public PostSummary(Integer id, String title, Double priceUSD, String previewImage, Set<Tag> tags, RatingSummary ratingSummary) {
+            this.id = id;
+            this.title = title;
+            this.priceUSD = priceUSD;
+            this.previewImage = previewImage;
+            this.tags = tags;
+            this.ratingSummary = ratingSummary;
+        }
+
+        public static PostSummary of(Posts p, RatingSummary ratingSummary) {
+            return of(p, ratingSummary, null);
+        }
+
+        public static PostSummary of(Posts p, RatingSummary ratingSummary, PreviewSize previewSize) {
+            List<String> previews = p.getPreviewImages();
+            String preview = previews == null || previews.isEmpty() ? null : previews.get(0);
+            if (preview != null && previewSize != null) preview = p.previewVariant(preview, previewSize).orElse(preview);
+            return new PostSummary(p.getId(), p.getTitle(), p.getPriceUSD(), preview,
+                    p.getTags() == null ? Set.of() : new HashSet<>(p.getTags()), ratingSummary);
+        }
+    }
+
+    /**
+     * Verzija odgovora GET /posts/{id}: post (lastTimeModified, fileVersion) + agregati ocen (version).
+     * Nakup posodobi lastTimeModified, zato je pokrit tudi buyerCount. ETag je močan validator.
+     */
+    public static class PostVersion {
+        private final Integer postId;
+        private final LocalDateTime lastModified;
+        private final Integer fileVersion;
+        // null, če post še nima vrstice agregatov
+        private final Long ratingVersion;
+        private final LocalDateTime ratingsModified;
+
+        public PostVersion(Integer postId, LocalDateTime lastModified, Integer fileVersion, Long ratingVersion, LocalDateTime ratingsModified) {
+            this.postId = postId;
+            this.lastModified = lastModified;
+            this.fileVersion = fileVersion;
+            this.ratingVersion = ratingVersion;
+            this.ratingsModified = ratingsModified;
+        }
+
+        // iz podatkov, ki se dejansko pošljejo (posnetek iz PostCache je lahko za trenutek starejši od baze)
+        public static PostVersion of(Posts post, RatingStats stats) {
+            return new PostVersion(post.getId(), post.getLastTimeModified(), post.getFileVersion(),
+                    stats == null ? null : stats.getVersion(), stats == null ? null : stats.getUpdatedAt());
+        }
+
+        public String etag() {
+            return "\"p" + postId + "." + micros(lastModified) + "." + fileVersion + "." + (ratingVersion == null ? "n" : ratingVersion) + "\"";
+        }
+
+        // odgovor za prijavljenega uporabnika vsebuje še, ali je post kupil
+        public String etag(boolean purchased) {
+            String base = etag();
+            return base.substring(0, base.length() - 1) + (purchased ? ".b" : ".o") + "\"";
+        }
+
+        // epoch millis, -1 če ni znan
+        public long lastModified() {
+            LocalDateTime latest = lastModified;
+            if (latest == null || (ratingsModified != null && ratingsModified.isAfter(latest))) latest = ratingsModified;
+            return epochMillis(latest);
+        }
+    }
+
+    public static String ratingsETag(RatingStats stats) {
+        return "\"r" + stats.getPostId() + "." + stats.getVersion() + "\"";
+    }
+
+    public static long ratingsLastModified(RatingStats stats) {
+        return epochMillis(stats.getUpdatedAt());
+    }
+
+    // časi so v bazi brez časovnega pasu, v lokalnem pasu JVM (enako kot jih zapiše Hibernate)
+    private static long epochMillis(LocalDateTime time) {
+        return time == null ? -1 : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long micros(LocalDateTime time) {
+        return time == null ? 0 : ChronoUnit.MICROS.between(LocalDateTime.of(1970, 1, 1, 0, 0), time);
+    }
+
     // DTO for rating summary
     public static class RatingSummary {
+        public static final RatingSummary EMPTY = new RatingSummary(0.0, 0L, new long[5]);
+
         public final double average;
         public final long count;
-        public RatingSummary(double average, long count) {
+        // histogram.get(0) = število ocen 1, ... histogram.get(4) = število ocen 5; nespremenljiv, ker si EMPTY delijo vsi odgovori
+        public final List<Long> histogram;
+        public RatingSummary(double average, long count, long[] histogram) {
             this.average = average;
             this.count = count;
+            this.histogram = Arrays.stream(histogram).boxed().toList();
+        }
+
+        public static RatingSummary of(RatingStats stats) {
+            return new RatingSummary(stats.getAverage(), stats.getRatingCount(), stats.getHistogram());
         }
     }
 }
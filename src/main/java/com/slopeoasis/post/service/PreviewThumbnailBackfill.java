@@ -0,0 +1,128 @@
+package com.slopeoasis.post.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.slopeoasis.post.repository.PreviewJobRepo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * One-time backfill of the preview_jobs queue for previews stored before downscaled variants existed
+ * (new and edited posts enqueue their own jobs). preview.thumbnails.backfill-delay after startup it walks
+ * the ids of posts with a preview that has no variants, in id order and batches of
+ * preview.thumbnails.backfill-batch, and enqueues their jobs (PreviewJobRepo.enqueueForPosts, existing
+ * jobs are kept). A Postgres session advisory lock makes sure only one replica runs it at a time.
+ */
+@Component
+public class PreviewThumbnailBackfill {
+
+    // pg_try_advisory_lock ključ, skupen vsem replikam
+    private static final String LOCK_KEY = "hashtext('preview_jobs_backfill')";
+
+    private final PreviewJobRepo previewJobRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long delayMillis;
+    private final int batchSize;
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder enqueued = new LongAdder();
+
+    public PreviewThumbnailBackfill(PreviewJobRepo previewJobRepo, JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${preview.thumbnails.backfill:true}") boolean enabled,
+                                    @Value("${preview.thumbnails.backfill-delay:1m}") Duration delay,
+                                    @Value("${preview.thumbnails.backfill-batch:500}") int batchSize) {
+        this.previewJobRepo = previewJobRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.delayMillis = Math.max(0, delay.toMillis());
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "preview-jobs-backfill");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.schedule(this::backgroundRun, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private void backgroundRun() {
+        try {
+            int jobs = backfill();
+            if (jobs > 0) System.out.println("[PreviewThumbnailBackfill] Enqueued " + jobs + " preview jobs");
+        } catch (RuntimeException e) {
+            // baza nedosegljiva -> posli se dodajo ob naslednjem zagonu ali urejanju posta
+            System.err.println("[PreviewThumbnailBackfill] Run failed: " + e.getMessage());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * En prehod čez vse poste (ali do napake).
+     * @return število novih poslov; 0 tudi, ko prehod že teče na drugi repliki
+     */
+    public int backfill() {
+        // zaklep je vezan na povezavo, zato jo držimo do konca; poizvedbe in inserti gredo po drugih povezavah
+        Integer added = jdbcTemplate.execute((ConnectionCallback<Integer>) con -> {
+            if (!queryBoolean(con, "SELECT pg_try_advisory_lock(" + LOCK_KEY + ")")) return 0;
+            try {
+                int total = 0;
+                int after = 0;
+                while (!Thread.currentThread().isInterrupted()) {
+                    List<Integer> postIds = previewJobRepo.findPostIdsWithoutVariants(after, batchSize);
+                    if (postIds.isEmpty()) break;
+                    // vsak kos v svoji kratki transakciji
+                    Integer jobs = transactionTemplate.execute(status -> previewJobRepo.enqueueForPosts(postIds));
+                    if (jobs != null) {
+                        enqueued.add(jobs);
+                        total += jobs;
+                    }
+                    if (postIds.size() < batchSize) break;
+                    after = postIds.get(postIds.size() - 1);
+                }
+                return total;
+            } finally {
+                queryBoolean(con, "SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+            }
+        });
+        return added != null ? added : 0;
+    }
+
+    private static boolean queryBoolean(Connection con, String sql) throws SQLException {
+        try (PreparedStatement st = con.prepareStatement(sql); ResultSet rs = st.executeQuery()) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    public long getEnqueuedCount() { return enqueued.sum(); }
+}
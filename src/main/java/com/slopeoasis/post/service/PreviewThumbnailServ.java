@@ -0,0 +1,363 @@
+package com.slopeoasis.post.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.slopeoasis.post.entity.Posts.PreviewSize;
+import com.slopeoasis.post.entity.PreviewJob;
+import com.slopeoasis.post.entity.PreviewVariant;
+import com.slopeoasis.post.repository.PreviewJobRepo;
+import com.slopeoasis.post.service.AzureBlobServ.BlobMetadata;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background generation of downscaled preview images (PreviewSize classes) from the preview_jobs queue.
+ * Jobs are added in the same transaction that stores a post's previews, so none are lost on restart.
+ * - every preview.thumbnails.poll-interval the poller claims due jobs, only as many as there are idle
+ *   workers in the bounded pool (preview.thumbnails.threads); a claim leases the job, so a job whose
+ *   replica dies is picked up again once the lease runs out
+ * - images are decoded with ImageIO (JDK only); large sources are subsampled while decoding and then
+ *   downscaled in bilinear halving steps, largest class first, each class from the previous one
+ * - variants are JPEG, or PNG when the source has transparency; a source that already fits a class is
+ *   recorded as its own variant
+ * - failed attempts are retried with exponential backoff up to preview.thumbnails.max-attempts; images
+ *   that can't be decoded or exceed the size limits are dropped immediately
+ */
+@Service
+public class PreviewThumbnailServ {
+
+    private static final int MAX_ERROR_CHARS = 500;
+
+    private final PreviewJobRepo previewJobRepo;
+    private final PostsServ postsServ;
+    private final AzureBlobServ azureBlobServ;
+    private final BlobMetadataServ blobMetadataServ;
+    private final BlobUploadPipeline uploadPipeline;
+    private final long pollMillis;
+    private final int threads;
+    private final long leaseSeconds;
+    private final long retryBaseSeconds;
+    private final long retryMaxSeconds;
+    private final int maxAttempts;
+    private final long maxSourceBytes;
+    private final long maxSourcePixels;
+    private final float jpegQuality;
+    private ScheduledExecutorService poller;
+    private ThreadPoolExecutor workers;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public PreviewThumbnailServ(PreviewJobRepo previewJobRepo, PostsServ postsServ, AzureBlobServ azureBlobServ,
+                                BlobMetadataServ blobMetadataServ, BlobUploadPipeline uploadPipeline,
+                                @Value("${preview.thumbnails.poll-interval:2s}") Duration pollInterval,
+                                @Value("${preview.thumbnails.threads:2}") int threads,
+                                @Value("${preview.thumbnails.lease:5m}") Duration lease,
+                                @Value("${preview.thumbnails.retry-delay:30s}") Duration retryBase,
+                                @Value("${preview.thumbnails.max-retry-delay:1h}") Duration retryMax,
+                                @Value("${preview.thumbnails.max-attempts:5}") int maxAttempts,
+                                @Value("${preview.thumbnails.max-source-size:25MB}") DataSize maxSourceSize,
+                                @Value("${preview.thumbnails.max-source-pixels:50000000}") long maxSourcePixels,
+                                @Value("${preview.thumbnails.jpeg-quality:0.82}") float jpegQuality) {
+        this.previewJobRepo = previewJobRepo;
+        this.postsServ = postsServ;
+        this.azureBlobServ = azureBlobServ;
+        this.blobMetadataServ = blobMetadataServ;
+        this.uploadPipeline = uploadPipeline;
+        this.pollMillis = pollInterval.toMillis();
+        this.threads = Math.max(1, threads);
+        this.leaseSeconds = Math.max(1, lease.toSeconds());
+        this.retryBaseSeconds = Math.max(1, retryBase.toSeconds());
+        this.retryMaxSeconds = Math.max(this.retryBaseSeconds, retryMax.toSeconds());
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.maxSourceBytes = maxSourceSize.toBytes();
+        this.maxSourcePixels = maxSourcePixels;
+        this.jpegQuality = Math.max(0.1f, Math.min(jpegQuality, 1f));
+        // brez začasnih datotek na disku, slike so majhne in v pomnilniku
+        ImageIO.setUseCache(false);
+    }
+
+    //poll-interval 0 izklopi obdelavo na tej repliki (posli ostanejo v vrsti)
+    @PostConstruct
+    public void start() {
+        if (pollMillis <= 0 || poller != null) return;
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads), r -> {
+                    Thread t = new Thread(r, "preview-thumbnails");
+                    t.setDaemon(true);
+                    return t;
+                });
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "preview-thumbnails-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) poller.shutdownNow();
+        if (workers != null) workers.shutdownNow();
+    }
+
+    private void poll() {
+        try {
+            int idle = threads - inFlight.get();
+            if (idle <= 0) return;
+            for (PreviewJob job : previewJobRepo.claimDue(idle, leaseSeconds)) {
+                inFlight.incrementAndGet();
+                try {
+                    workers.execute(() -> {
+                        try {
+                            process(job);
+                        } finally {
+                            inFlight.decrementAndGet();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // zaustavljanje: posel ostane zakupljen in ga po izteku zakupa prevzame druga replika
+                    inFlight.decrementAndGet();
+                }
+            }
+        } catch (RuntimeException e) {
+            // baza nedosegljiva ali poln bulkhead -> poskusi ob naslednjem intervalu
+            System.err.println("[PreviewThumbnailServ] Poll failed: " + e.getMessage());
+        }
+    }
+
+    private void process(PreviewJob job) {
+        String source = job.getSourceBlobName();
+        List<String> uploaded = new ArrayList<>();
+        try {
+            if (!postsServ.hasPreviewImage(job.getPostId(), source)) {
+                previewJobRepo.deleteById(job.getId());
+                return;
+            }
+            Optional<BlobMetadata> metadata = blobMetadataServ.get(source);
+            if (metadata.isEmpty()) throw new IOException("Preview blob not found");
+            if (metadata.get().sizeBytes > maxSourceBytes) {
+                throw new UnusableImageException("Preview blob too large: " + metadata.get().sizeBytes + " bytes");
+            }
+
+            List<PreviewVariant> variants = createVariants(source, uploaded);
+            List<String> unused = postsServ.recordPreviewVariants(job.getPostId(), source, variants);
+            if (!unused.isEmpty()) uploadPipeline.discard(unused);
+            previewJobRepo.deleteById(job.getId());
+            completed.increment();
+        } catch (UnusableImageException e) {
+            discard(uploaded);
+            failed.increment();
+            previewJobRepo.deleteById(job.getId());
+            System.err.println("[PreviewThumbnailServ] Dropped preview " + source + " of post " + job.getPostId() + ": " + e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            discard(uploaded);
+            retryOrFail(job, e);
+        }
+    }
+
+    private void retryOrFail(PreviewJob job, Exception e) {
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        if (error.length() > MAX_ERROR_CHARS) error = error.substring(0, MAX_ERROR_CHARS);
+        try {
+            if (job.getAttempts() >= maxAttempts) {
+                failed.increment();
+                previewJobRepo.deleteById(job.getId());
+                System.err.println("[PreviewThumbnailServ] Giving up on preview " + job.getSourceBlobName()
+                        + " of post " + job.getPostId() + " after " + job.getAttempts() + " attempts: " + error);
+                return;
+            }
+            // 30 s, 1 min, 2 min ... do max-retry-delay
+            long delay = retryBaseSeconds << Math.min(job.getAttempts() - 1, 20);
+            previewJobRepo.reschedule(job.getId(), Math.min(delay, retryMaxSeconds), error);
+            retried.increment();
+        } catch (RuntimeException dbError) {
+            // posel ostane zakupljen, po izteku zakupa se poskusi znova
+            System.err.println("[PreviewThumbnailServ] Could not reschedule job " + job.getId() + ": " + dbError.getMessage());
+        }
+    }
+
+    // različice za vse razrede; naložene blobe doda v uploaded, da se ob napaki lahko pobrišejo
+    List<PreviewVariant> createVariants(String source, List<String> uploaded) throws IOException {
+        InputStream in = azureBlobServ.downloadBlob(source).orElseThrow(() -> new IOException("Preview blob not found"));
+        DecodedImage decoded;
+        try (in) {
+            decoded = decode(in);
+        }
+
+        PreviewSize[] sizes = PreviewSize.values();
+        List<PreviewVariant> variants = new ArrayList<>(sizes.length);
+        BufferedImage current = decoded.image;
+        // od največjega razreda navzdol, vsak iz prejšnjega (manj dela, enaka kakovost kot iz izvirnika)
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            PreviewSize size = sizes[i];
+            if (fits(decoded.width, decoded.height, size)) {
+                variants.add(new PreviewVariant(source, size, source, decoded.width, decoded.height));
+                continue;
+            }
+            double scale = (double) size.maxEdge() / Math.max(decoded.width, decoded.height);
+            int w = Math.max(1, (int) Math.round(decoded.width * scale));
+            int h = Math.max(1, (int) Math.round(decoded.height * scale));
+            current = downscale(current, w, h, decoded.alpha);
+            byte[] bytes = encode(current, decoded.alpha);
+            String ext = decoded.alpha ? ".png" : ".jpg";
+            BlobMetadata metadata;
+            try {
+                metadata = azureBlobServ.uploadFile(new ByteArrayInputStream(bytes), bytes.length,
+                        decoded.alpha ? "image/png" : "image/jpeg", "preview-" + size.name().toLowerCase(Locale.ROOT) + ext);
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            uploaded.add(metadata.name);
+            blobMetadataServ.record(metadata);
+            variants.add(new PreviewVariant(source, size, metadata.name, w, h));
+        }
+        return variants;
+    }
+
+    private static boolean fits(int width, int height, PreviewSize size) {
+        return width <= size.maxEdge() && height <= size.maxEdge();
+    }
+
+    /**
+     * Prebere mere iz glave slike in jo dekodira le, če je večja od najmanjšega razreda.
+     * Slika, ki je vsaj dvakrat večja od največjega razreda, se podvzorči že med dekodiranjem,
+     * tako da v pomnilniku ni nikoli celotne velike slike.
+     */
+    private DecodedImage decode(InputStream in) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            if (iis == null) throw new UnusableImageException("Unreadable image");
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) throw new UnusableImageException("Unsupported image format");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width <= 0 || height <= 0 || (long) width * height > maxSourcePixels) {
+                    throw new UnusableImageException("Image dimensions not supported: " + width + "x" + height);
+                }
+                PreviewSize smallest = PreviewSize.values()[0];
+                if (fits(width, height, smallest)) return new DecodedImage(null, width, height, false);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int largestEdge = PreviewSize.values()[PreviewSize.values().length - 1].maxEdge();
+                int step = Math.max(1, Math.max(width, height) / (2 * largestEdge));
+                if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage image = reader.read(0, param);
+                return new DecodedImage(image, width, height, image.getColorModel().hasAlpha());
+            } catch (UnusableImageException e) {
+                throw e;
+            } catch (IOException | IllegalArgumentException e) {
+                // pokvarjena ali nepodprta vsebina (npr. CMYK JPEG) se ne popravi s ponovnim poskusom
+                throw new UnusableImageException("Could not decode image: " + e.getMessage());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // zmanjševanje v korakih po polovico z bilinearno interpolacijo (en sam bilinearni korak pri velikem razmerju izgubi detajle)
+    static BufferedImage downscale(BufferedImage source, int targetWidth, int targetHeight, boolean alpha) {
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(targetWidth, w / 2);
+            h = Math.max(targetHeight, h / 2);
+            BufferedImage next = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != targetWidth || h != targetHeight);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, boolean alpha) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (alpha) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private void discard(List<String> uploaded) {
+        if (uploaded.isEmpty()) return;
+        try {
+            uploadPipeline.discard(uploaded);
+        } catch (RuntimeException e) {
+            System.err.println("[PreviewThumbnailServ] Failed to discard variants: " + e.getMessage());
+        }
+    }
+
+    public long getCompletedCount() { return completed.sum(); }
+
+    public long getRetriedCount() { return retried.sum(); }
+
+    public long getFailedCount() { return failed.sum(); }
+
+    // image je null, ko je slika manjša od vseh razredov (dekodiranje ni potrebno)
+    private record DecodedImage(BufferedImage image, int width, int height, boolean alpha) {}
+
+    // slike ni mogoče obdelati (format, mere, velikost) -> brez ponovnih poskusov
+    private static class UnusableImageException extends IOException {
+        UnusableImageException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.slopeoasis.post.service;
+
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import com.slopeoasis.post.entity.Posts.Status;
+import com.slopeoasis.post.repository.PostsRepo;
+import com.slopeoasis.post.repository.PostsRepo.Stock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Nakup posta brez nalaganja entitete in brez optimističnih retryjev:
+ * 1. kupec že ima post -> ALREADY_OWNED (samo indeksni EXISTS, brez zaklepanja)
+ * 2. pogojni UPDATE copies = copies - 1 WHERE copies > 0 (omejene kopije; vrstica je zaklenjena le do commita)
+ *    ali pa branje zaloge, če UPDATE ni zadel (neomejeno / razprodano / izbrisano)
+ * 3. INSERT kupca ON CONFLICT DO NOTHING; če ga je vmes vstavil vzporeden zahtevek, se transakcija
+ *    (vključno z zmanjšanjem zaloge) razveljavi in vrne ALREADY_OWNED
+ * Zaloga tako nikoli ne gre pod 0 in vsak kupec porabi največ eno kopijo.
+ * Uspešen nakup poveča buyer_count, invalidira PostCache (copies, buyerCount) in posodobi last_time_modified (ETag/Last-Modified),
+ * ob rollbacku se obvestilo ne pošlje.
+ */
+@Service
+public class PurchaseServ {
+
+    public enum Outcome {
+        PURCHASED,
+        ALREADY_OWNED,
+        SOLD_OUT,
+        NOT_FOUND,
+        UNAVAILABLE
+    }
+
+    private final PostsRepo postsRepo;
+    private final MeterRegistry meterRegistry;
+    private final PostCache postCache;
+
+    public PurchaseServ(PostsRepo postsRepo, MeterRegistry meterRegistry, PostCache postCache) {
+        this.postsRepo = postsRepo;
+        this.meterRegistry = meterRegistry;
+        this.postCache = postCache;
+    }
+
+    @Transactional
+    public Outcome purchase(Integer postId, String buyerId) {
+        Outcome outcome = tryPurchase(postId, buyerId);
+        if (outcome == Outcome.PURCHASED) postCache.evict(postId);
+        Counter.builder("purchase.attempts").tag("outcome", outcome.name().toLowerCase())
+                .register(meterRegistry).increment();
+        return outcome;
+    }
+
+    private Outcome tryPurchase(Integer postId, String buyerId) {
+        if (postsRepo.existsBuyer(postId, buyerId)) return Outcome.ALREADY_OWNED;
+
+        boolean decremented = postsRepo.decrementCopies(postId) > 0;
+        if (!decremented) {
+            Optional<Stock> stock = postsRepo.findStock(postId);
+            if (stock.isEmpty()) return Outcome.NOT_FOUND;
+            if (stock.get().getStatus() == Status.USER_DELETED) return Outcome.UNAVAILABLE;
+            Integer copies = stock.get().getCopies();
+            if (copies != null && copies >= 0) return Outcome.SOLD_OUT;
+            // neomejene kopije (-1): zaloge ni treba spreminjati
+        }
+
+        if (postsRepo.insertBuyerIfAbsent(postId, buyerId) == 0) {
+            // vzporeden nakup istega kupca je bil hitrejši -> kopijo vrnemo
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return Outcome.ALREADY_OWNED;
+        }
+        postsRepo.addBuyerCount(postId, 1);
+        return Outcome.PURCHASED;
+    }
+}
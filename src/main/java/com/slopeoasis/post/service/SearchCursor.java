@@ -0,0 +1,51 @@
+package com.slopeoasis.post.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Keyset position in full-text search results ordered by (rank DESC, id DESC).
+ * The rank is the exact float Postgres returned (ts_rank is real), so it round-trips losslessly.
+ */
+public final class SearchCursor {
+
+    // Sentinel used for the first page: sorts after every real row
+    private static final SearchCursor START = new SearchCursor(Float.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final float rank;
+    private final Integer id;
+
+    private SearchCursor(float rank, Integer id) {
+        this.rank = rank;
+        this.id = id;
+    }
+
+    public static SearchCursor after(float rank, Integer id) {
+        return new SearchCursor(rank, id);
+    }
+
+    //prazen token pomeni prvo stran, neveljaven token vrne empty
+    public static Optional<SearchCursor> decode(String token) {
+        if (token == null || token.isBlank()) return Optional.of(START);
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            if (sep < 0) return Optional.empty();
+            float rank = Float.intBitsToFloat(Integer.parseUnsignedInt(raw.substring(0, sep), 16));
+            if (Float.isNaN(rank)) return Optional.empty();
+            return Optional.of(new SearchCursor(rank, Integer.valueOf(raw.substring(sep + 1))));
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    public String encode() {
+        String raw = Integer.toHexString(Float.floatToIntBits(rank)) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public float getRank() { return rank; }
+
+    public Integer getId() { return id; }
+}
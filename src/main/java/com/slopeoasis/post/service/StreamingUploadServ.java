@@ -0,0 +1,185 @@
+package com.slopeoasis.post.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadException;
+import org.apache.commons.fileupload2.core.FileUploadSizeException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletDiskFileUpload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.slopeoasis.post.service.AzureBlobServ.BlobMetadata;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Multipart upload brez vmesnega zapisa na disk: telo zahtevka se bere kot tok,
+ * vsak datotečni del gre neposredno v AzureBlobServ.uploadStream (bloki po nekaj MB).
+ * Tekstovna polja morajo biti v zahtevku pred datotekami, da jih lahko preverimo,
+ * preden se začne prenos.
+ * Vsebina toka je znana šele po prenosu: če ima prodajalec blob z enako vsebino že shranjen,
+ * se pravkar naloženi blob izbriše in uporabi obstoječ (deduplikacija, glej BlobMetadataServ.acquire).
+ */
+@Service
+public class StreamingUploadServ {
+
+    // tekstovna polja so kratka (naslov, opis, tagi ...), več ne beremo v pomnilnik
+    private static final int MAX_FIELD_BYTES = 64 * 1024;
+
+    private final AzureBlobServ azureBlobServ;
+    private final BlobMetadataServ blobMetadataServ;
+    private final BlobUploadPipeline uploadPipeline;
+    private final long maxFileSize;
+    private final long maxRequestSize;
+
+    public StreamingUploadServ(AzureBlobServ azureBlobServ, BlobMetadataServ blobMetadataServ, BlobUploadPipeline uploadPipeline,
+                               @Value("${spring.servlet.multipart.max-file-size:200MB}") DataSize maxFileSize,
+                               @Value("${spring.servlet.multipart.max-request-size:250MB}") DataSize maxRequestSize) {
+        this.azureBlobServ = azureBlobServ;
+        this.blobMetadataServ = blobMetadataServ;
+        this.uploadPipeline = uploadPipeline;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxRequestSize = maxRequestSize.toBytes();
+    }
+
+    /**
+     * Prebere multipart zahtevek kot tok in datoteke sproti naloži v blob storage.
+     * @param ownerId prodajalec; deduplikacija velja samo med njegovimi blobi (null = brez deduplikacije)
+     * @param beforeFirstFile validacija polj pred prvim datotečnim delom; vrne sporočilo o napaki ali null
+     * @throws StreamingUploadException ob neveljavnih poljih, prevelikem zahtevku ali napaki pri uploadu
+     *         (takrat so že naloženi blobi izbrisani)
+     * @throws BulkheadFullException če je blob bulkhead poln (naloženi blobi so prav tako izbrisani)
+     */
+    public StreamedUpload receive(HttpServletRequest request, String ownerId, Function<Map<String, String>, String> beforeFirstFile)
+            throws StreamingUploadException {
+        JakartaServletDiskFileUpload upload = new JakartaServletDiskFileUpload();
+        upload.setFileSizeMax(maxFileSize);
+        upload.setSizeMax(maxRequestSize);
+
+        Map<String, String> fields = new HashMap<>();
+        Map<String, List<String>> blobs = new HashMap<>();
+        List<String> uploaded = new ArrayList<>();
+        boolean validated = false;
+        try {
+            FileItemInputIterator items = upload.getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemInput item = items.next();
+                if (item.isFormField()) {
+                    fields.put(item.getFieldName(), readField(item));
+                    continue;
+                }
+                if (item.getName() == null || item.getName().isEmpty()) continue; // prazen file input
+
+                if (!validated) {
+                    String error = beforeFirstFile.apply(fields);
+                    if (error != null) throw new StreamingUploadException(400, error);
+                    validated = true;
+                }
+                try (InputStream in = item.getInputStream()) {
+                    BlobMetadata metadata = azureBlobServ.uploadStream(in, item.getContentType(), item.getName());
+                    String blobName = metadata.name;
+                    Optional<BlobMetadata> existing = blobMetadataServ.acquire(ownerId, metadata.sha256, metadata.sizeBytes);
+                    if (existing.isPresent()) {
+                        blobName = existing.get().name;
+                        uploaded.add(blobName);
+                        deleteDuplicate(metadata.name);
+                    } else {
+                        uploaded.add(blobName);
+                        blobMetadataServ.record(metadata, ownerId);
+                    }
+                    blobs.computeIfAbsent(item.getFieldName(), k -> new ArrayList<>()).add(blobName);
+                }
+            }
+        } catch (StreamingUploadException e) {
+            uploadPipeline.discard(uploaded);
+            throw e;
+        } catch (FileUploadSizeException e) {
+            uploadPipeline.discard(uploaded);
+            throw new StreamingUploadException(413, "Upload too large");
+        } catch (FileUploadException e) {
+            uploadPipeline.discard(uploaded);
+            throw new StreamingUploadException(400, "Malformed multipart request");
+        } catch (BulkheadFullException e) {
+            // blob storage je zaseden -> 503 (PostsCont), ne 500
+            uploadPipeline.discard(uploaded);
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            uploadPipeline.discard(uploaded);
+            // velikostne omejitve se lahko pojavijo tudi med branjem datoteke
+            if (e.getCause() instanceof FileUploadSizeException) {
+                throw new StreamingUploadException(413, "Upload too large");
+            }
+            throw new StreamingUploadException(500, "Failed to upload file");
+        }
+
+        if (!validated) {
+            String error = beforeFirstFile.apply(fields);
+            if (error != null) throw new StreamingUploadException(400, error);
+        }
+        return new StreamedUpload(fields, blobs);
+    }
+
+    // dvojnik nima vrstice v stored_blobs, zato ga discard ne bi našel; neuspeh pusti le osirotel blob
+    private void deleteDuplicate(String blobName) {
+        boolean deleted;
+        try {
+            deleted = azureBlobServ.deleteBlob(blobName);
+        } catch (BulkheadFullException e) {
+            deleted = false;
+        }
+        if (!deleted) {
+            System.err.println("[StreamingUploadServ] Failed to delete duplicate blob " + blobName);
+        }
+    }
+
+    private static String readField(FileItemInput item) throws IOException, StreamingUploadException {
+        try (InputStream in = item.getInputStream()) {
+            byte[] bytes = in.readNBytes(MAX_FIELD_BYTES + 1);
+            if (bytes.length > MAX_FIELD_BYTES) {
+                throw new StreamingUploadException(413, "Field too large: " + item.getFieldName());
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Rezultat: tekstovna polja in imena naloženih blobov po imenu polja (npr. "file", "previewImages")
+    public static class StreamedUpload {
+        public final Map<String, String> fields;
+        public final Map<String, List<String>> blobs;
+        public StreamedUpload(Map<String, String> fields, Map<String, List<String>> blobs) {
+            this.fields = fields;
+            this.blobs = blobs;
+        }
+
+        public List<String> blobs(String fieldName) {
+            return blobs.getOrDefault(fieldName, List.of());
+        }
+
+        public List<String> allBlobs() {
+            List<String> all = new ArrayList<>();
+            blobs.values().forEach(all::addAll);
+            return all;
+        }
+    }
+
+    public static class StreamingUploadException extends Exception {
+        private final int status;
+        public StreamingUploadException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() { return status; }
+    }
+}
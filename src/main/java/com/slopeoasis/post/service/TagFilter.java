@@ -0,0 +1,101 @@
+package com.slopeoasis.post.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.slopeoasis.post.entity.Posts.Tag;
+
+/**
+ * Filter po tagih nad posts.tag_mask (bit = Tag.ordinal):
+ * - any: post ima vsaj enega od teh tagov (prazno = brez omejitve)
+ * - all: post ima vse te tage
+ * - none: post nima nobenega od teh tagov
+ * Bitni pogoji se izračunajo tukaj nad vsemi možnimi maskami (2^9, največ 2^Tag.MAX_TAGS), v SQL gre seznam ustreznih mask
+ * (tag_mask = ANY(:masks)). Postgres za pogoje z & nima statistike in oceni, da ustreza skoraj nič vrstic,
+ * zato bi izbral sekvenčno branje + sort; za = ANY uporabi statistiko stolpca in pravi indeks.
+ */
+public final class TagFilter {
+
+    private final int any;
+    private final int all;
+    private final int none;
+
+    private TagFilter(int any, int all, int none) {
+        this.any = any;
+        this.all = all;
+        this.none = none;
+    }
+
+    public static TagFilter of(Collection<Tag> any, Collection<Tag> all, Collection<Tag> none) {
+        return new TagFilter(Tag.mask(any), Tag.mask(all), Tag.mask(none));
+    }
+
+    public static TagFilter anyOf(Collection<Tag> tags) {
+        return of(tags, null, null);
+    }
+
+    /**
+     * Iz parametrov zahtevka ("ART,MUSIC"); empty, če kateri od tagov ne obstaja.
+     */
+    public static Optional<TagFilter> parse(String any, String all, String none) {
+        Optional<Set<Tag>> a = parseList(any);
+        Optional<Set<Tag>> b = parseList(all);
+        Optional<Set<Tag>> c = parseList(none);
+        if (a.isEmpty() || b.isEmpty() || c.isEmpty()) return Optional.empty();
+        return Optional.of(of(a.get(), b.get(), c.get()));
+    }
+
+    private static Optional<Set<Tag>> parseList(String value) {
+        Set<Tag> tags = EnumSet.noneOf(Tag.class);
+        if (value == null) return Optional.of(tags);
+        for (String part : value.split(",")) {
+            String name = part.trim();
+            if (name.isEmpty()) continue;
+            try {
+                tags.add(Tag.valueOf(name.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(tags);
+    }
+
+    private static final int MASK_COUNT = 1 << Tag.values().length;
+
+    public boolean matches(int tagMask) {
+        return (any == 0 || (tagMask & any) != 0) && (tagMask & all) == all && (tagMask & none) == 0;
+    }
+
+    // vse maske, ki ustrezajo filtru (za tag_mask = ANY(:masks))
+    public Integer[] matchingMasks() {
+        List<Integer> masks = new ArrayList<>();
+        for (int m = 0; m < MASK_COUNT; m++) {
+            if (matches(m)) masks.add(m);
+        }
+        return masks.toArray(new Integer[0]);
+    }
+
+    // noben post ne more ustrezati (npr. isti tag v all in none), poizvedba ni potrebna
+    public boolean isUnsatisfiable() {
+        return (all & none) != 0 || (any != 0 && (any & ~none) == 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TagFilter f && f.any == any && f.all == all && f.none == none;
+    }
+
+    @Override
+    public int hashCode() {
+        return (any * 31 + all) * 31 + none;
+    }
+
+    @Override
+    public String toString() {
+        return "any=" + any + ",all=" + all + ",none=" + none;
+    }
+}
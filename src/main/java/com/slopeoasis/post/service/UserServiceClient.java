@@ -0,0 +1,216 @@
+package com.slopeoasis.post.service;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.slopeoasis.post.entity.Posts.Tag;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Client for user-service's GET /users/themes, used by the personalised feed (/posts/themes).
+ * - one shared JDK HttpClient: keep-alive connections are pooled and reused, with connect and read timeouts
+ * - themes are cached per user: fresh for user.api.themes.ttl, after that the cached value is still served while
+ *   a single background refresh runs; entries not refreshed within user.api.themes.max-stale are dropped
+ * - a circuit breaker stops calling after consecutive failures; while it is open, and whenever a call fails,
+ *   times out or the user-service bulkhead is full, the cached themes are served, or user.api.themes.fallback
+ *   when the user has none cached, so a slow user-service doesn't hold up the feed
+ */
+@Service
+public class UserServiceClient {
+
+    private final String themesUrl;
+    private final RestTemplate restTemplate;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker breaker;
+    private final Cache<String, CachedThemes> cache;
+    private final long ttlNanos;
+    private final Set<Tag> fallbackThemes;
+    private final ThreadPoolExecutor refreshExecutor;
+
+    private final LongAdder freshHits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder fetches = new LongAdder();
+    private final LongAdder fetchFailures = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public UserServiceClient(@Value("${user.api.url:http://localhost:8080}") String baseUrl,
+                             @Value("${user.api.connect-timeout:1s}") Duration connectTimeout,
+                             @Value("${user.api.read-timeout:2s}") Duration readTimeout,
+                             @Value("${user.api.themes.ttl:60s}") Duration ttl,
+                             @Value("${user.api.themes.max-stale:1h}") Duration maxStale,
+                             @Value("${user.api.themes.max-entries:100000}") long maxEntries,
+                             @Value("${user.api.themes.fallback:}") String fallback,
+                             @Value("${user.api.themes.refresh-threads:2}") int refreshThreads,
+                             @Qualifier("userServiceBulkhead") Bulkhead bulkhead,
+                             @Qualifier("userServiceBreaker") CircuitBreaker breaker) {
+        this.themesUrl = baseUrl + "/users/themes";
+        // HTTP/1.1: brez h2c upgrade poskusa na http:// naslovih, povezave ostanejo odprte (keep-alive) v poolu klienta
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.bulkhead = bulkhead;
+        this.breaker = breaker;
+        this.ttlNanos = ttl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(maxStale.compareTo(ttl) > 0 ? maxStale : ttl)
+                .build();
+        this.fallbackThemes = parseFallback(fallback);
+        int threads = Math.max(1, refreshThreads);
+        this.refreshExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1024), r -> {
+                    Thread t = new Thread(r, "user-themes-refresh");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Teme uporabnika. Nikoli ne vrže izjeme: ob nedosegljivem user-service vrne zadnje znane teme
+     * ali rezervne (user.api.themes.fallback).
+     * @param authHeader Authorization header zahtevka, posreduje se user-service (tudi ob osvežitvi v ozadju)
+     */
+    public Set<Tag> getThemes(String userId, String authHeader) {
+        CachedThemes cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            if (System.nanoTime() - cached.fetchedAt < ttlNanos) {
+                freshHits.increment();
+            } else {
+                staleHits.increment();
+                refreshInBackground(userId, authHeader, cached);
+            }
+            return cached.themes;
+        }
+        Optional<Set<Tag>> fetched = fetch(authHeader);
+        if (fetched.isPresent()) {
+            cache.put(userId, new CachedThemes(fetched.get()));
+            return fetched.get();
+        }
+        fallbacks.increment();
+        return fallbackThemes;
+    }
+
+    // en sam refresh na uporabnika; star vnos ostane, dokler refresh ne uspe
+    private void refreshInBackground(String userId, String authHeader, CachedThemes cached) {
+        if (!cached.refreshing.compareAndSet(false, true)) return;
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    fetch(authHeader).ifPresent(themes -> cache.put(userId, new CachedThemes(themes)));
+                } finally {
+                    cached.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            cached.refreshing.set(false);
+        }
+    }
+
+    // empty, ko klic ni mogoč ali ne uspe (odprt odklopnik, poln bulkhead, napaka, timeout, 4xx)
+    private Optional<Set<Tag>> fetch(String authHeader) {
+        long permit = breaker.tryAcquire();
+        if (permit == CircuitBreaker.REJECTED) return Optional.empty();
+        try {
+            bulkhead.acquire();
+        } catch (BulkheadFullException e) {
+            breaker.release(permit);
+            return Optional.empty();
+        }
+        fetches.increment();
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                headers.set(HttpHeaders.AUTHORIZATION, authHeader);
+            }
+            String[] body = restTemplate.exchange(themesUrl, HttpMethod.GET, new HttpEntity<>(headers), String[].class).getBody();
+            breaker.onSuccess();
+            return Optional.of(toTags(body));
+        } catch (HttpClientErrorException e) {
+            // user-service deluje, zavrnil je zahtevek (npr. 401) -> ne šteje kot izpad
+            breaker.onSuccess();
+            fetchFailures.increment();
+            System.err.println("[UserServiceClient] Themes request rejected: " + e.getStatusCode());
+            return Optional.empty();
+        } catch (RuntimeException e) {
+            breaker.onFailure(permit);
+            fetchFailures.increment();
+            System.err.println("[UserServiceClient] Themes request failed: " + e.getMessage());
+            return Optional.empty();
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private static Set<Tag> toTags(String[] themes) {
+        Set<Tag> tags = EnumSet.noneOf(Tag.class);
+        if (themes == null) return Collections.unmodifiableSet(tags);
+        for (String theme : themes) {
+            if (theme == null || theme.isBlank()) continue;
+            try {
+                tags.add(Tag.valueOf(theme.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                System.out.println("[UserServiceClient] Invalid theme: " + theme);
+            }
+        }
+        return Collections.unmodifiableSet(tags);
+    }
+
+    // prazno = vse teme (splošen feed namesto praznega)
+    private static Set<Tag> parseFallback(String fallback) {
+        if (fallback == null || fallback.isBlank()) return Collections.unmodifiableSet(EnumSet.allOf(Tag.class));
+        return toTags(fallback.split(","));
+    }
+
+    public long getFreshHitCount() { return freshHits.sum(); }
+
+    public long getStaleHitCount() { return staleHits.sum(); }
+
+    public long getFetchCount() { return fetches.sum(); }
+
+    public long getFetchFailureCount() { return fetchFailures.sum(); }
+
+    public long getFallbackCount() { return fallbacks.sum(); }
+
+    private static final class CachedThemes {
+        final Set<Tag> themes;
+        final long fetchedAt = System.nanoTime();
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        CachedThemes(Set<Tag> themes) {
+            this.themes = themes;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.slopeoasis.post.clerk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+class JwksKeyStoreTest {
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile String jwks;
+    private volatile long delayMillis;
+    private volatile int status = 200;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/jwks", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = jwks.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    private JwksKeyStore store(Duration minRefresh) {
+        return new JwksKeyStore("http://127.0.0.1:" + server.getAddress().getPort() + "/jwks",
+                Duration.ofMinutes(10), Duration.ofMinutes(5), minRefresh, Duration.ofSeconds(2));
+    }
+
+    @Test
+    void concurrentLookupsShareOneFetch() throws Exception {
+        KeyPair pair = rsa();
+        jwks = jwks(jwk("k1", pair));
+        delayMillis = 300;
+        JwksKeyStore store = store(Duration.ZERO);
+
+        int threads = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<JwksKeyStore.VerificationKey>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(pool.submit(() -> {
+                go.await();
+                return store.getKey("k1");
+            }));
+        }
+        go.countDown();
+        for (Future<JwksKeyStore.VerificationKey> r : results) {
+            assertNotNull(r.get());
+        }
+        pool.shutdown();
+
+        assertEquals(1, requests.get());
+        assertEquals(1, store.getFetchCount());
+    }
+
+    @Test
+    void unknownKidIsNegativelyCached() {
+        jwks = jwks(jwk("k1", rsa()));
+        JwksKeyStore store = store(Duration.ZERO);
+
+        for (int i = 0; i < 50; i++) {
+            assertNull(store.getKey("bogus"));
+        }
+        assertEquals(1, requests.get());
+        assertEquals(49, store.getNegativeHitCount());
+    }
+
+    @Test
+    void onDemandFetchesAreRateLimited() {
+        jwks = jwks(jwk("k1", rsa()));
+        JwksKeyStore store = store(Duration.ofMinutes(1));
+
+        assertNotNull(store.getKey("k1"));
+        for (int i = 0; i < 20; i++) {
+            assertNull(store.getKey("bogus-" + i));
+            assertNull(store.getKey("bogus-" + i));
+        }
+        assertEquals(1, requests.get());
+        // brez branja po zgrešitvi se kid ne zapomni kot neznan
+        assertEquals(0, store.getNegativeHitCount());
+    }
+
+    @Test
+    void kidRotatedInWhileRateLimitedIsNotNegativelyCached() throws Exception {
+        KeyPair pair = rsa();
+        jwks = jwks(jwk("k1", pair));
+        JwksKeyStore store = store(Duration.ofMillis(200));
+        assertNotNull(store.getKey("k1"));
+
+        // k2 pride pred rotacijo, ko branje še ni dovoljeno
+        assertNull(store.getKey("k2"));
+        jwks = jwks(jwk("k1", pair), jwk("k2", rsa()));
+        Thread.sleep(250);
+
+        assertNotNull(store.getKey("k2"));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void rotationPicksUpNewKeyAndDropsOldOne() {
+        KeyPair oldPair = rsa();
+        KeyPair newPair = rsa();
+        jwks = jwks(jwk("old", oldPair));
+        JwksKeyStore store = store(Duration.ZERO);
+        assertNotNull(store.getKey("old"));
+
+        jwks = jwks(jwk("new", newPair));
+        assertNotNull(store.getKey("new"));
+        assertEquals(2, requests.get());
+        assertEquals(1, store.size());
+        assertNull(store.getKey("old"));
+    }
+
+    @Test
+    void fetchFailureIsReportedAndNotCachedAsUnknown() {
+        jwks = "{}";
+        status = 500;
+        JwksKeyStore store = store(Duration.ZERO);
+        assertThrows(IllegalStateException.class, () -> store.getKey("k1"));
+
+        status = 200;
+        jwks = jwks(jwk("k1", rsa()));
+        assertNotNull(store.getKey("k1"));
+    }
+
+    @Test
+    void verifiesSignaturesWithPooledSignature() throws Exception {
+        KeyPair pair = rsa();
+        jwks = jwks(jwk("k1", pair));
+        JwksKeyStore.VerificationKey key = store(Duration.ZERO).getKey("k1");
+
+        byte[] content = "header.payload".getBytes(StandardCharsets.US_ASCII);
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(pair.getPrivate());
+        signer.update(content);
+        byte[] signature = signer.sign();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(key.verify(content, signature));
+        }
+        assertFalse(key.verify("header.other".getBytes(StandardCharsets.US_ASCII), signature));
+        assertTrue(key.verify(content, signature));
+    }
+
+    private static KeyPair rsa() {
+        try {
+            KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
+            gen.initialize(2048);
+            return gen.generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String jwk(String kid, KeyPair pair) {
+        RSAPublicKey pub = (RSAPublicKey) pair.getPublic();
+        Base64.Encoder enc = Base64.getUrlEncoder().withoutPadding();
+        return "{\"kty\":\"RSA\",\"kid\":\"" + kid + "\",\"alg\":\"RS256\",\"use\":\"sig\""
+                + ",\"n\":\"" + enc.encodeToString(unsigned(pub.getModulus().toByteArray())) + "\""
+                + ",\"e\":\"" + enc.encodeToString(unsigned(pub.getPublicExponent().toByteArray())) + "\"}";
+    }
+
+    private static byte[] unsigned(byte[] bytes) {
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+
+    private static String jwks(String... keys) {
+        return "{\"keys\":[" + String.join(",", keys) + "]}";
+    }
+}
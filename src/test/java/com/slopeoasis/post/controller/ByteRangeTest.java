@@ -0,0 +1,57 @@
+package com.slopeoasis.post.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ByteRangeTest {
+
+    @Test
+    void parsesSingleRanges() {
+        assertEquals(new ByteRange(0, 99), ByteRange.parse("bytes=0-99", 1000));
+        assertEquals(new ByteRange(500, 999), ByteRange.parse("bytes=500-", 1000));
+        assertEquals(new ByteRange(900, 999), ByteRange.parse("bytes=-100", 1000));
+        // konec in pripona, daljša od bloba, se odrežeta
+        assertEquals(new ByteRange(990, 999), ByteRange.parse("bytes=990-5000", 1000));
+        assertEquals(new ByteRange(0, 999), ByteRange.parse("bytes=-5000", 1000));
+        assertEquals("bytes 990-999/1000", ByteRange.parse("bytes=990-", 1000).contentRange(1000));
+        assertEquals(10, ByteRange.parse("BYTES=0-9", 1000).length());
+    }
+
+    @Test
+    void unsatisfiableRanges() {
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=1000-", 1000));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=2000-3000", 1000));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", 1000));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=0-", 0));
+    }
+
+    @Test
+    void malformedOrMultipleRangesServeWholeBlob() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("items=0-9", 1000));
+        assertNull(ByteRange.parse("bytes=9-0", 1000));
+        assertNull(ByteRange.parse("bytes=-", 1000));
+        assertNull(ByteRange.parse("bytes=+1-5", 1000));
+        assertNull(ByteRange.parse("bytes=0-1,5-6", 1000));
+        assertNull(ByteRange.parse("bytes=99999999999999999999-", 1000));
+    }
+
+    @Test
+    void ifRangeUsesStrongComparison() {
+        long lastModified = 1_767_261_600_000L; // Thu, 01 Jan 2026 10:00:00 GMT
+        assertTrue(ByteRange.ifRangeMatches(null, "\"a\"", lastModified));
+        assertTrue(ByteRange.ifRangeMatches("\"a\"", "\"a\"", lastModified));
+        assertFalse(ByteRange.ifRangeMatches("\"b\"", "\"a\"", lastModified));
+        assertFalse(ByteRange.ifRangeMatches("W/\"a\"", "\"a\"", lastModified));
+        assertFalse(ByteRange.ifRangeMatches("\"a\"", null, lastModified));
+        assertTrue(ByteRange.ifRangeMatches("Thu, 01 Jan 2026 10:00:00 GMT", "\"a\"", lastModified + 123));
+        assertFalse(ByteRange.ifRangeMatches("Thu, 01 Jan 2026 09:59:59 GMT", "\"a\"", lastModified));
+        assertFalse(ByteRange.ifRangeMatches("not a date", "\"a\"", lastModified));
+        assertFalse(ByteRange.ifRangeMatches("Thu, 01 Jan 2026 10:00:00 GMT", "\"a\"", -1));
+    }
+}
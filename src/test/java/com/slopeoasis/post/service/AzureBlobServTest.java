@@ -0,0 +1,46 @@
+package com.slopeoasis.post.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class AzureBlobServTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long WINDOW = 5 * MINUTE;
+    private static final long MAX = 120 * MINUTE;
+
+    @Test
+    void expiryIsSameWithinWindowAndCoversTtl() {
+        long start = 1_000_000 * WINDOW;
+        for (long ttl : new long[] {MINUTE, 60 * MINUTE, 61 * MINUTE}) {
+            long window = Math.min(WINDOW, ttl);
+            long first = AzureBlobServ.alignedExpiry(start, ttl, window, MAX);
+            for (long now = start; now < start + window; now += 997) {
+                long expiry = AzureBlobServ.alignedExpiry(now, ttl, window, MAX);
+                assertEquals(first, expiry);
+                assertTrue(expiry - now >= ttl, "ttl " + ttl + " now " + now);
+                assertTrue(expiry - now < ttl + 2 * window);
+            }
+            assertEquals(0, first % window);
+            assertNotEquals(first, AzureBlobServ.alignedExpiry(start + window, ttl, window, MAX));
+        }
+    }
+
+    @Test
+    void expiryNeverExceedsMaximum() {
+        long start = 1_000_000 * WINDOW;
+        for (long ttl : new long[] {MAX - WINDOW, MAX - 1, MAX}) {
+            for (long now = start; now < start + WINDOW; now += 997) {
+                long expiry = AzureBlobServ.alignedExpiry(now, ttl, WINDOW, MAX);
+                assertTrue(expiry - now <= MAX, "ttl " + ttl + " now " + now);
+                assertTrue(expiry - now > MAX - WINDOW);
+                assertEquals(0, expiry % WINDOW);
+            }
+        }
+        // brez omejitve bi bil konec okna + 2 okni nad ttl
+        assertEquals(start + MAX, AzureBlobServ.alignedExpiry(start + 1, MAX, WINDOW, MAX));
+    }
+}
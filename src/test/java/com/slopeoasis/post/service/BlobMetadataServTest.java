@@ -0,0 +1,84 @@
+package com.slopeoasis.post.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.slopeoasis.post.entity.StoredBlob;
+import com.slopeoasis.post.repository.StoredBlobRepo;
+import com.slopeoasis.post.service.AzureBlobServ.BlobMetadata;
+
+class BlobMetadataServTest {
+
+    private StoredBlobRepo repo;
+    private BlobMetadataServ serv;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(StoredBlobRepo.class);
+        serv = new BlobMetadataServ(repo, mock(AzureBlobServ.class), mock(PlatformTransactionManager.class),
+                1000, Duration.ofHours(1), true);
+    }
+
+    @Test
+    void acquireReusesBlobWithSameContent() {
+        StoredBlob existing = new StoredBlob();
+        existing.setBlobName("b1");
+        existing.setSizeBytes(42);
+        existing.setSha256("ab");
+        when(repo.acquireByContent("s1", "ab", 42)).thenReturn(List.of(existing));
+
+        Optional<BlobMetadata> hit = serv.acquire("s1", "ab", 42);
+        assertEquals("b1", hit.get().name);
+        assertEquals(1, serv.getDedupHitCount());
+        assertEquals(42, serv.getDedupBytes());
+
+        when(repo.acquireByContent("s1", "cd", 42)).thenReturn(List.of());
+        assertTrue(serv.acquire("s1", "cd", 42).isEmpty());
+    }
+
+    @Test
+    void acquireWithoutOwnerOrHashDoesNotDeduplicate() {
+        assertTrue(serv.acquire(null, "ab", 42).isEmpty());
+        assertTrue(serv.acquire("s1", null, 42).isEmpty());
+        verify(repo, never()).acquireByContent(anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void releaseDeletesOnlyBlobsWithoutReferences() {
+        // zadnja referenca -> vrstica in blob gresta stran
+        when(repo.decrementRefCount("last")).thenReturn(List.of(0));
+        when(repo.deleteUnreferenced("last")).thenReturn(1);
+        // deljen blob ostane
+        when(repo.decrementRefCount("shared")).thenReturn(List.of(1));
+        // brez reference, a ga post še uporablja (star refCount) -> ostane
+        when(repo.decrementRefCount("stale")).thenReturn(List.of(0));
+        when(repo.deleteUnreferenced("stale")).thenReturn(0);
+        // brez vrstice: izbriše se samo, če ga ne uporablja noben post
+        when(repo.decrementRefCount("orphan")).thenReturn(List.of());
+        when(repo.decrementRefCount("legacy")).thenReturn(List.of());
+        when(repo.isReferencedByPost("legacy")).thenReturn(true);
+
+        assertEquals(List.of("last", "orphan"), serv.release(List.of("last", "shared", "stale", "orphan", "legacy")));
+        verify(repo, never()).deleteUnreferenced("shared");
+    }
+
+    @Test
+    void releaseKeepsBlobsWhenDatabaseFails() {
+        when(repo.decrementRefCount("b1")).thenThrow(new IllegalStateException("db down"));
+        assertTrue(serv.release(List.of("b1")).isEmpty());
+    }
+}
@@ -0,0 +1,50 @@
+package com.slopeoasis.post.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import com.slopeoasis.post.entity.Posts;
+
+class PostCursorTest {
+
+    @Test
+    void roundTripsThroughToken() {
+        Posts post = new Posts();
+        post.setId(42);
+        post.setUploadTime(LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_000));
+
+        String token = PostCursor.after(post).encode();
+        // URL-safe brez paddinga
+        assertFalse(token.contains("=") || token.contains("+") || token.contains("/"));
+        PostCursor decoded = PostCursor.decode(token).get();
+        assertEquals(post.getUploadTime(), decoded.getUploadTime());
+        assertEquals(42, decoded.getId());
+    }
+
+    @Test
+    void emptyTokenIsFirstPage() {
+        assertSame(PostCursor.start(), PostCursor.decode(null).get());
+        assertSame(PostCursor.start(), PostCursor.decode(" ").get());
+        assertEquals(Integer.MAX_VALUE, PostCursor.start().getId());
+    }
+
+    @Test
+    void invalidTokensAreRejected() {
+        assertTrue(PostCursor.decode("not base64!").isEmpty());
+        assertTrue(PostCursor.decode(encode("2025-03-01T12:30")).isEmpty());
+        assertTrue(PostCursor.decode(encode("yesterday|1")).isEmpty());
+        assertTrue(PostCursor.decode(encode("2025-03-01T12:30|x")).isEmpty());
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
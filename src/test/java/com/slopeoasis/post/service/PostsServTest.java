@@ -0,0 +1,163 @@
+package com.slopeoasis.post.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.slopeoasis.post.config.SchemaInitializer;
+import com.slopeoasis.post.entity.Posts;
+import com.slopeoasis.post.repository.PostsRepo;
+import com.slopeoasis.post.repository.PreviewJobRepo;
+import com.slopeoasis.post.repository.RatingRepo;
+import com.slopeoasis.post.repository.RatingStatsRepo;
+import com.slopeoasis.post.repository.StoredBlobRepo;
+import com.slopeoasis.post.service.PostsServ.BlobNotAllowedException;
+import com.slopeoasis.post.service.PostsServ.FileReplacement;
+import com.slopeoasis.post.service.PostsServ.PostVersion;
+import com.slopeoasis.post.service.PostsServ.RatingSummary;
+
+class PostsServTest {
+
+    private PostsRepo postsRepo;
+    private StoredBlobRepo storedBlobRepo;
+    private BlobUploadPipeline uploadPipeline;
+    private PostsServ serv;
+    private Posts post;
+
+    @BeforeEach
+    void setUp() {
+        postsRepo = mock(PostsRepo.class);
+        storedBlobRepo = mock(StoredBlobRepo.class);
+        uploadPipeline = mock(BlobUploadPipeline.class);
+        serv = new PostsServ(postsRepo, mock(RatingRepo.class), mock(RatingStatsRepo.class), mock(SchemaInitializer.class),
+                mock(PostCache.class), mock(PreviewJobRepo.class), storedBlobRepo, uploadPipeline);
+
+        post = new Posts();
+        post.setId(1);
+        post.setSellerId("s1");
+        post.setAzBlobName("old");
+        post.setFileVersion(1);
+        post.setPreviewImages(new ArrayList<>(List.of("p1", "p2")));
+        post.setLastTimeModified(LocalDateTime.of(2024, 1, 1, 0, 0));
+        when(postsRepo.findById(1)).thenReturn(Optional.of(post));
+        when(postsRepo.save(any(Posts.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(postsRepo.saveAndFlush(any(Posts.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @Test
+    void identicalReplacementKeepsFileVersion() {
+        when(storedBlobRepo.hasSameContent("old", "same")).thenReturn(true);
+
+        FileReplacement result = serv.replacePostFile(1, "s1", "same").get();
+        assertFalse(result.replaced);
+        assertEquals("old", post.getAzBlobName());
+        assertEquals(1, post.getFileVersion());
+        verify(postsRepo, never()).save(any(Posts.class));
+        verify(uploadPipeline, never()).discard(anyCollection());
+    }
+
+    @Test
+    void replacementBumpsFileVersionAndReleasesOldBlob() {
+        FileReplacement result = serv.replacePostFile(1, "s1", "new").get();
+        assertTrue(result.replaced);
+        assertEquals("new", post.getAzBlobName());
+        assertEquals(2, post.getFileVersion());
+        verify(uploadPipeline).discard(List.of("old"));
+        // naložen blob že ima referenco uploada
+        verify(storedBlobRepo, never()).claim("new", "s1");
+    }
+
+    @Test
+    void blobOfAnotherSellerIsRejected() {
+        when(storedBlobRepo.isAssignable("foreign", "s1")).thenReturn(false);
+        // tudi z enako vsebino, sicer bi odgovor razkril vsebino tujega bloba
+        when(storedBlobRepo.hasSameContent("old", "foreign")).thenReturn(true);
+
+        assertThrows(BlobNotAllowedException.class, () -> serv.updatePostFile(1, "s1", "foreign"));
+        assertEquals("old", post.getAzBlobName());
+        assertEquals(1, post.getFileVersion());
+        verify(storedBlobRepo, never()).claim("foreign", "s1");
+        verify(uploadPipeline, never()).discard(anyCollection());
+    }
+
+    @Test
+    void clientSuppliedBlobTakesReference() {
+        when(storedBlobRepo.isAssignable("mine", "s1")).thenReturn(true);
+        when(storedBlobRepo.claim("mine", "s1")).thenReturn(1);
+
+        assertEquals("mine", serv.updatePostFile(1, "s1", "mine").get().getAzBlobName());
+        verify(uploadPipeline).discard(List.of("old"));
+
+        // neznan blob (brez vrstice v stored_blobs)
+        when(storedBlobRepo.isAssignable("missing", "s1")).thenReturn(true);
+        assertThrows(BlobNotAllowedException.class, () -> serv.updatePostFile(1, "s1", "missing"));
+    }
+
+    @Test
+    void editingPreviewsClaimsAddedAndReleasesRemovedBlobs() {
+        when(storedBlobRepo.isAssignable("p3", "s1")).thenReturn(true);
+        when(storedBlobRepo.claim("p3", "s1")).thenReturn(1);
+
+        Posts updates = new Posts();
+        updates.setPreviewImages(new ArrayList<>(List.of("p2", "p3")));
+        serv.editPost(1, "s1", updates);
+
+        assertEquals(List.of("p2", "p3"), post.getPreviewImages());
+        verify(storedBlobRepo, never()).claim("p2", "s1");
+        verify(uploadPipeline).discard(List.of("p1"));
+    }
+
+    @Test
+    void previewOnlyEditChangesETag() {
+        when(storedBlobRepo.isAssignable("p3", "s1")).thenReturn(true);
+        when(storedBlobRepo.claim("p3", "s1")).thenReturn(1);
+        String before = PostVersion.of(post, null).etag();
+
+        Posts updates = new Posts();
+        updates.setPreviewImages(new ArrayList<>(List.of("p1", "p3")));
+        serv.editPost(1, "s1", updates);
+        String afterEdit = PostVersion.of(post, null).etag();
+        assertNotEquals(before, afterEdit);
+
+        // zamenjava z naloženimi slikami prav tako
+        post.setLastTimeModified(LocalDateTime.of(2024, 1, 1, 0, 0));
+        serv.replacePreviewImages(1, "s1", new ArrayList<>(List.of("u1")));
+        assertNotEquals(before, PostVersion.of(post, null).etag());
+    }
+
+    @Test
+    void ratingSummaryHistogramIsImmutable() {
+        long[] counts = {1, 2, 3, 4, 5};
+        RatingSummary summary = new RatingSummary(3.7, 15, counts);
+        counts[0] = 99;
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), summary.histogram);
+        assertThrows(UnsupportedOperationException.class, () -> summary.histogram.set(0, 7L));
+        assertThrows(UnsupportedOperationException.class, () -> RatingSummary.EMPTY.histogram.set(0, 7L));
+        assertEquals(List.of(0L, 0L, 0L, 0L, 0L), RatingSummary.EMPTY.histogram);
+    }
+
+    @Test
+    void replacingPreviewsWithUploadsReleasesAllOldOnes() {
+        serv.replacePreviewImages(1, "s1", new ArrayList<>(List.of("p2", "u1")));
+
+        // "p2" je dedupliciran upload z lastno referenco, zato se sprosti tudi referenca starega seznama
+        verify(uploadPipeline).discard(List.of("p1", "p2"));
+        verify(storedBlobRepo, never()).claim(any(), any());
+    }
+}
@@ -0,0 +1,134 @@
+package com.slopeoasis.post.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.slopeoasis.post.entity.Posts.PreviewSize;
+import com.slopeoasis.post.entity.PreviewVariant;
+import com.slopeoasis.post.repository.PreviewJobRepo;
+import com.slopeoasis.post.service.AzureBlobServ.BlobMetadata;
+
+class PreviewThumbnailServTest {
+
+    private AzureBlobServ azureBlobServ;
+    private PreviewThumbnailServ serv;
+
+    @BeforeEach
+    void setUp() {
+        azureBlobServ = mock(AzureBlobServ.class);
+        // poll-interval 0: start() ni klican, poller ne teče
+        serv = new PreviewThumbnailServ(mock(PreviewJobRepo.class), mock(PostsServ.class), azureBlobServ,
+                mock(BlobMetadataServ.class), mock(BlobUploadPipeline.class), Duration.ZERO, 1, Duration.ofMinutes(5),
+                Duration.ofSeconds(30), Duration.ofHours(1), 5, DataSize.ofMegabytes(25), 50_000_000L, 0.82f);
+    }
+
+    @Test
+    void downscaleHitsTargetSizeForNonSquareImages() {
+        BufferedImage wide = PreviewThumbnailServ.downscale(image(3000, 1500, false), 200, 100, false);
+        assertEquals(200, wide.getWidth());
+        assertEquals(100, wide.getHeight());
+
+        // razmerje, ki se ne razpolavlja natančno: zadnji korak pristane na cilju
+        BufferedImage odd = PreviewThumbnailServ.downscale(image(1000, 333, false), 480, 160, false);
+        assertEquals(480, odd.getWidth());
+        assertEquals(160, odd.getHeight());
+
+        BufferedImage tall = PreviewThumbnailServ.downscale(image(300, 1200, false), 256, 1024, false);
+        assertEquals(256, tall.getWidth());
+        assertEquals(1024, tall.getHeight());
+        assertFalse(tall.getColorModel().hasAlpha());
+    }
+
+    @Test
+    void downscaleKeepsTransparency() {
+        // leva polovica rdeča, desna prosojna
+        BufferedImage result = PreviewThumbnailServ.downscale(image(800, 400, true), 200, 100, true);
+        assertTrue(result.getColorModel().hasAlpha());
+        assertEquals(255, result.getRGB(10, 50) >>> 24);
+        assertEquals(Color.RED.getRGB() & 0xffffff, result.getRGB(10, 50) & 0xffffff);
+        assertEquals(0, result.getRGB(190, 50) >>> 24);
+
+        // brez alpha se prosojnost ne ohrani
+        assertFalse(PreviewThumbnailServ.downscale(image(800, 400, true), 200, 100, false).getColorModel().hasAlpha());
+    }
+
+    @Test
+    void imageThatFitsSmallestClassIsItsOwnVariant() throws Exception {
+        when(azureBlobServ.downloadBlob("tiny.png")).thenReturn(Optional.of(png(150, 100)));
+
+        List<String> uploaded = new ArrayList<>();
+        List<PreviewVariant> variants = serv.createVariants("tiny.png", uploaded);
+
+        assertEquals(PreviewSize.values().length, variants.size());
+        for (PreviewVariant v : variants) {
+            assertEquals("tiny.png", v.getBlobName());
+            assertEquals(150, v.getWidth());
+            assertEquals(100, v.getHeight());
+        }
+        assertTrue(uploaded.isEmpty());
+        verify(azureBlobServ, never()).uploadFile(any(InputStream.class), anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void onlyClassesSmallerThanTheImageGetNewBlobs() throws Exception {
+        when(azureBlobServ.downloadBlob("mid.png")).thenReturn(Optional.of(png(400, 300)));
+        when(azureBlobServ.uploadFile(any(InputStream.class), anyLong(), anyString(), anyString())).thenAnswer(inv ->
+                new BlobMetadata("small-variant", inv.getArgument(2), inv.getArgument(1), OffsetDateTime.now(),
+                        OffsetDateTime.now(), null, "\"v\""));
+
+        List<String> uploaded = new ArrayList<>();
+        List<PreviewVariant> variants = serv.createVariants("mid.png", uploaded);
+
+        assertEquals(List.of("small-variant"), uploaded);
+        for (PreviewVariant v : variants) {
+            if (v.getSize() == PreviewSize.SMALL) {
+                assertEquals("small-variant", v.getBlobName());
+                assertEquals(200, v.getWidth());
+                assertEquals(150, v.getHeight());
+            } else {
+                assertEquals("mid.png", v.getBlobName());
+            }
+        }
+    }
+
+    private static BufferedImage image(int width, int height, boolean alpha) {
+        BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, width / 2, height);
+        g.dispose();
+        return image;
+    }
+
+    private static InputStream png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image(width, height, false), "png", out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+}
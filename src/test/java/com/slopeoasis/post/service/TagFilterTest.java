@@ -0,0 +1,75 @@
+package com.slopeoasis.post.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.slopeoasis.post.entity.Posts.Tag;
+
+class TagFilterTest {
+
+    private static final int ALL_MASKS = 1 << Tag.values().length;
+
+    @Test
+    void matchesAnyAllAndNone() {
+        TagFilter filter = TagFilter.of(List.of(Tag.ART, Tag.MUSIC), List.of(Tag.CODE), List.of(Tag.VIDEO));
+        assertTrue(filter.matches(Tag.mask(List.of(Tag.ART, Tag.CODE))));
+        assertTrue(filter.matches(Tag.mask(List.of(Tag.MUSIC, Tag.CODE, Tag.FONT))));
+        // manjka all
+        assertFalse(filter.matches(Tag.mask(List.of(Tag.ART))));
+        // nobenega iz any
+        assertFalse(filter.matches(Tag.mask(List.of(Tag.CODE, Tag.FONT))));
+        // tag iz none
+        assertFalse(filter.matches(Tag.mask(List.of(Tag.ART, Tag.CODE, Tag.VIDEO))));
+
+        // prazen filter ustreza vsemu, tudi postu brez tagov
+        TagFilter empty = TagFilter.of(null, null, null);
+        assertTrue(empty.matches(0));
+        assertTrue(empty.matches(ALL_MASKS - 1));
+    }
+
+    @Test
+    void matchingMasksAreExactlyTheMatchingOnes() {
+        TagFilter filter = TagFilter.of(List.of(Tag.ART, Tag.MUSIC), null, List.of(Tag.MUSIC));
+        Integer[] masks = filter.matchingMasks();
+        for (int m = 0; m < ALL_MASKS; m++) {
+            assertEquals(filter.matches(m), Arrays.asList(masks).contains(m), "mask " + m);
+        }
+        // ART mora biti, MUSIC ne sme: četrtina vseh mask, naraščajoče
+        assertEquals(ALL_MASKS / 4, masks.length);
+        assertEquals(Tag.ART.bit(), masks[0]);
+        for (int i = 1; i < masks.length; i++) assertTrue(masks[i - 1] < masks[i]);
+
+        assertEquals(ALL_MASKS, TagFilter.anyOf(Set.of()).matchingMasks().length);
+        assertEquals(ALL_MASKS - ALL_MASKS / 2, TagFilter.anyOf(Set.of(Tag.OTHER)).matchingMasks().length);
+    }
+
+    @Test
+    void unsatisfiableFilters() {
+        assertTrue(TagFilter.of(null, List.of(Tag.ART), List.of(Tag.ART)).isUnsatisfiable());
+        assertTrue(TagFilter.of(List.of(Tag.ART, Tag.MUSIC), null, List.of(Tag.ART, Tag.MUSIC)).isUnsatisfiable());
+        assertFalse(TagFilter.of(List.of(Tag.ART, Tag.MUSIC), null, List.of(Tag.ART)).isUnsatisfiable());
+        assertFalse(TagFilter.of(null, null, List.of(Tag.values())).isUnsatisfiable());
+        // nezadovoljiv filter nima nobene maske
+        assertEquals(0, TagFilter.of(null, List.of(Tag.ART), List.of(Tag.ART)).matchingMasks().length);
+    }
+
+    @Test
+    void parsesRequestParameters() {
+        assertEquals(TagFilter.of(List.of(Tag.ART, Tag.MUSIC), null, List.of(Tag.CODE)),
+                TagFilter.parse(" art, MUSIC ,", null, "code").get());
+        assertEquals(TagFilter.of(null, null, null), TagFilter.parse(null, "", null).get());
+        assertTrue(TagFilter.parse("ART,NOPE", null, null).isEmpty());
+    }
+
+    @Test
+    void tagCountFitsTheMaskFilter() {
+        assertTrue(Tag.values().length <= Tag.MAX_TAGS);
+    }
+}
@@ -0,0 +1,177 @@
+package com.slopeoasis.post.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.slopeoasis.post.entity.Posts.Tag;
+import com.sun.net.httpserver.HttpServer;
+
+class UserServiceClientTest {
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private volatile String themes = "[\"art\",\"music\",\"bogus\"]";
+    private volatile long delayMillis;
+    private volatile int status = 200;
+    private volatile String lastAuthorization;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/users/themes", exchange -> {
+            requests.incrementAndGet();
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = themes.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    private CircuitBreaker breaker;
+
+    private UserServiceClient client(Duration ttl, int failureThreshold, String fallback) {
+        return client(ttl, failureThreshold, fallback, Duration.ofSeconds(5));
+    }
+
+    private UserServiceClient client(Duration ttl, int failureThreshold, String fallback, Duration readTimeout) {
+        breaker = new CircuitBreaker("user-service", failureThreshold, Duration.ofMinutes(1));
+        return new UserServiceClient("http://127.0.0.1:" + server.getAddress().getPort(),
+                Duration.ofSeconds(1), readTimeout, ttl, Duration.ofHours(1), 1000, fallback, 1,
+                new Bulkhead("user-service", 4, Duration.ZERO), breaker);
+    }
+
+    @Test
+    void cachesThemesPerUserAndForwardsToken() {
+        UserServiceClient client = client(Duration.ofMinutes(1), 5, "");
+
+        assertEquals(EnumSet.of(Tag.ART, Tag.MUSIC), client.getThemes("u1", "Bearer t1"));
+        assertEquals(EnumSet.of(Tag.ART, Tag.MUSIC), client.getThemes("u1", "Bearer t1"));
+        assertEquals(1, requests.get());
+        assertEquals("Bearer t1", lastAuthorization);
+
+        client.getThemes("u2", "Bearer t2");
+        client.getThemes("u3", "Bearer t3");
+        assertEquals(3, requests.get());
+        // keep-alive: vsi zahtevki gredo po isti povezavi
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void staleThemesAreServedWhileRefreshingInBackground() throws Exception {
+        UserServiceClient client = client(Duration.ZERO, 5, "");
+        client.getThemes("u1", "Bearer t");
+
+        themes = "[\"code\"]";
+        delayMillis = 100;
+        long start = System.nanoTime();
+        assertEquals(EnumSet.of(Tag.ART, Tag.MUSIC), client.getThemes("u1", "Bearer t"));
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(80).toNanos(), "stale read waited for the refresh");
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!client.getThemes("u1", "Bearer t").equals(EnumSet.of(Tag.CODE)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(EnumSet.of(Tag.CODE), client.getThemes("u1", "Bearer t"));
+    }
+
+    @Test
+    void slowUserServiceTimesOutOpensBreakerAndFallsBack() {
+        UserServiceClient client = client(Duration.ZERO, 2, "ART,CODE", Duration.ofMillis(200));
+        client.getThemes("cached", "Bearer t");
+        int before = requests.get();
+
+        delayMillis = 3000;
+        long start = System.nanoTime();
+        assertEquals(EnumSet.of(Tag.ART, Tag.CODE), client.getThemes("u1", "Bearer t"));
+        assertEquals(EnumSet.of(Tag.ART, Tag.CODE), client.getThemes("u2", "Bearer t"));
+        // dva read timeouta (200 ms), ne šest sekund čakanja na user-service
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(2000).toNanos());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // odprt odklopnik: brez klica, rezervne teme oz. zadnje znane za uporabnika v cachu
+        assertEquals(EnumSet.of(Tag.ART, Tag.CODE), client.getThemes("u3", "Bearer t"));
+        assertEquals(EnumSet.of(Tag.ART, Tag.MUSIC), client.getThemes("cached", "Bearer t"));
+        assertEquals(before + 2, requests.get());
+    }
+
+    @Test
+    void clientErrorsDoNotOpenBreaker() {
+        UserServiceClient client = client(Duration.ofMinutes(1), 1, "");
+        status = 401;
+
+        assertEquals(EnumSet.allOf(Tag.class), client.getThemes("u1", "Bearer t"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        // rezervne teme se ne shranijo v cache
+        status = 200;
+        assertEquals(EnumSet.of(Tag.ART, Tag.MUSIC), client.getThemes("u1", "Bearer t"));
+    }
+
+    @Test
+    void halfOpenBreakerClosesAfterSuccessfulTrial() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofMillis(50));
+        breaker.onFailure(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        Thread.sleep(60);
+        assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        // med poskusnim klicem so ostali zavrnjeni
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+    }
+
+    @Test
+    void lateFailureDoesNotEndHalfOpenTrial() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofMillis(50));
+        long early = breaker.tryAcquire();
+        breaker.onFailure(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(60);
+        long trial = breaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REJECTED, trial);
+        // klic, začet pred odprtjem, ne sprosti poskusa in ne odpre znova
+        breaker.onFailure(early);
+        breaker.release(early);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        breaker.onFailure(trial);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+    }
+}